@@ -0,0 +1,104 @@
+package com.spicep.cryptowallet.client;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponse;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.CoinCapHistoryResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * CoinCap client used by the rest of the application. Concurrent identical requests share one in-flight call
+ * of the resilient client (and so one HTTP call) and its result.
+ */
+@Component
+@Primary
+public class CoalescingCoinCapClient implements CoinCapClient {
+
+    private final CoinCapClient delegate;
+
+    private final SingleFlight<String, CoinCapAssetResponse> assetCalls = new SingleFlight<>();
+    private final SingleFlight<HistoryKey, CoinCapHistoryResponse> historyCalls = new SingleFlight<>();
+    private final SingleFlight<AssetsKey, CoinCapAssetsResponse> assetsCalls = new SingleFlight<>();
+    private final SingleFlight<AssetsKey, CoinCapAssetSymbols> symbolsCalls = new SingleFlight<>();
+    private final SingleFlight<AssetsKey, CoinCapAssetPrices> pricesCalls = new SingleFlight<>();
+
+    @Value("${coincap.coalescing.enable:true}")
+    private boolean enabled;
+
+    public CoalescingCoinCapClient(@Qualifier("resilientCoinCapClient") CoinCapClient delegate,
+                                   MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        registerMetrics(meterRegistry, "asset", assetCalls);
+        registerMetrics(meterRegistry, "history", historyCalls);
+        registerMetrics(meterRegistry, "assets", assetsCalls);
+        registerMetrics(meterRegistry, "asset-symbols", symbolsCalls);
+        registerMetrics(meterRegistry, "asset-prices", pricesCalls);
+        Gauge.builder("coincap.coalescing.ratio", this, CoalescingCoinCapClient::coalescingRatio)
+                .description("Share of CoinCap requests served by an identical in-flight call")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CoinCapAssetResponse getAsset(String id) {
+        return execute(assetCalls, id, () -> delegate.getAsset(id));
+    }
+
+    @Override
+    public CoinCapHistoryResponse getAssetHistory(String id, String interval, Long start, Long end) {
+        return execute(historyCalls, new HistoryKey(id, interval, start, end),
+                () -> delegate.getAssetHistory(id, interval, start, end));
+    }
+
+    @Override
+    public CoinCapAssetsResponse getAssets(String search, Integer limit, Integer offset) {
+        return execute(assetsCalls, new AssetsKey(search, limit, offset),
+                () -> delegate.getAssets(search, limit, offset));
+    }
+
+    @Override
+    public CoinCapAssetSymbols getAssetSymbols(Integer limit, Integer offset) {
+        return execute(symbolsCalls, new AssetsKey(null, limit, offset), () -> delegate.getAssetSymbols(limit, offset));
+    }
+
+    @Override
+    public CoinCapAssetPrices getAssetPrices(Integer limit, Integer offset) {
+        return execute(pricesCalls, new AssetsKey(null, limit, offset), () -> delegate.getAssetPrices(limit, offset));
+    }
+
+    /**
+     * @return Share of requests that did not go to the network, between 0 and 1
+     */
+    public double coalescingRatio() {
+        var calls = List.of(assetCalls, historyCalls, assetsCalls, symbolsCalls, pricesCalls);
+        var coalesced = calls.stream().mapToLong(SingleFlight::coalesced).sum();
+        var total = coalesced + calls.stream().mapToLong(SingleFlight::executed).sum();
+        return total == 0 ? 0 : (double) coalesced / total;
+    }
+
+    private <K, V> V execute(SingleFlight<K, V> calls, K key, Supplier<V> call) {
+        return enabled ? calls.execute(key, call) : call.get();
+    }
+
+    private static void registerMetrics(MeterRegistry meterRegistry, String endpoint, SingleFlight<?, ?> calls) {
+        FunctionCounter.builder("coincap.requests", calls, SingleFlight::executed)
+                .tags("endpoint", endpoint, "result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("coincap.requests", calls, SingleFlight::coalesced)
+                .tags("endpoint", endpoint, "result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    private record HistoryKey(String id, String interval, Long start, Long end) {}
+
+    private record AssetsKey(String search, Integer limit, Integer offset) {}
+}
@@ -0,0 +1,42 @@
+package com.spicep.cryptowallet.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import feign.Response;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Feign decoder of the CoinCap client. Projections of the assets listing ({@link CoinCapAssetSymbols},
+ * {@link CoinCapAssetPrices}) are streamed from the response body by {@link CoinCapAssetsReader}, every other
+ * type goes to the regular Spring/Jackson decoder.
+ */
+public class CoinCapAssetsDecoder implements Decoder {
+
+    private final JsonFactory jsonFactory;
+    private final Decoder delegate;
+
+    public CoinCapAssetsDecoder(JsonFactory jsonFactory, Decoder delegate) {
+        this.jsonFactory = jsonFactory;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (type != CoinCapAssetSymbols.class && type != CoinCapAssetPrices.class) {
+            return delegate.decode(response, type);
+        }
+        if (response.body() == null) {
+            return null;
+        }
+
+        try (var parser = jsonFactory.createParser(response.body().asInputStream())) {
+            return type == CoinCapAssetSymbols.class
+                    ? CoinCapAssetsReader.readSymbols(parser)
+                    : CoinCapAssetsReader.readPrices(parser);
+        }
+    }
+}
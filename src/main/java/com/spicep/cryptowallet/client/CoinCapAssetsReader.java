@@ -0,0 +1,111 @@
+package com.spicep.cryptowallet.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads a CoinCap assets listing ({@code {"data": [...], "timestamp": ...}}) token by token and keeps only the
+ * fields a projection needs. Every other field is skipped by the parser, so no {@code CoinCapAsset} is built and
+ * only the projection stays on the heap.
+ */
+final class CoinCapAssetsReader {
+
+    private static final String[] SYMBOL = {"symbol"};
+    private static final String[] SYMBOL_AND_PRICE = {"symbol", "priceUsd"};
+
+    private CoinCapAssetsReader() {
+    }
+
+    static CoinCapAssetSymbols readSymbols(JsonParser parser) throws IOException {
+        List<String> symbols = new ArrayList<>();
+        var listing = read(parser, SYMBOL, values -> {
+            if (values[0] != null) {
+                symbols.add(values[0]);
+            }
+        });
+        return new CoinCapAssetSymbols(symbols, listing.assetCount(), listing.timestamp());
+    }
+
+    static CoinCapAssetPrices readPrices(JsonParser parser) throws IOException {
+        Map<String, LazyDecimal> prices = new HashMap<>();
+        var listing = read(parser, SYMBOL_AND_PRICE, values -> {
+            var price = LazyDecimal.of(values[1]);
+            if (values[0] != null && price != null) {
+                // The listing is ordered by rank, so the first asset seen for a symbol is the best ranked one
+                prices.putIfAbsent(values[0].toUpperCase(Locale.ROOT), price);
+            }
+        });
+        return new CoinCapAssetPrices(prices, listing.assetCount(), listing.timestamp());
+    }
+
+    /**
+     * Walks the listing and hands the wanted fields of every asset to the consumer, in the order of {@code fields}.
+     * The values array is reused between assets.
+     */
+    private static Listing read(JsonParser parser, String[] fields, Consumer<String[]> consumer) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "CoinCap assets listing is not a JSON object");
+        }
+
+        int assetCount = 0;
+        Long timestamp = null;
+        var values = new String[fields.length];
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var name = parser.currentName();
+            var token = parser.nextToken();
+
+            if ("data".equals(name) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readAsset(parser, fields, values);
+                    consumer.accept(values);
+                    assetCount++;
+                }
+            } else if ("timestamp".equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+                timestamp = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Listing(assetCount, timestamp);
+    }
+
+    private static void readAsset(JsonParser parser, String[] fields, String[] values) throws IOException {
+        Arrays.fill(values, null);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var index = indexOf(fields, parser.currentName());
+            var token = parser.nextToken();
+
+            if (index >= 0 && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                values[index] = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static int indexOf(String[] fields, String name) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private record Listing(int assetCount, Long timestamp) {}
+}
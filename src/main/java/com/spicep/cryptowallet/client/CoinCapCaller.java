@@ -0,0 +1,36 @@
+package com.spicep.cryptowallet.client;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the CoinCap calls made on behalf of the price update scheduler. {@link ResilientCoinCapClient} sends them
+ * through a bulkhead and a rate limiter share of their own, so bursts of interactive traffic (simulations, wallet
+ * writes) cannot starve the scheduler, whichever endpoint both sides call.
+ */
+public final class CoinCapCaller {
+
+    private static final ThreadLocal<Boolean> SCHEDULER = ThreadLocal.withInitial(() -> false);
+
+    private CoinCapCaller() {
+    }
+
+    /**
+     * Runs CoinCap calls on this thread as the price update scheduler
+     *
+     * @param call Calls to run
+     * @return Result of the calls
+     */
+    public static <T> T asScheduler(Supplier<T> call) {
+        var previous = SCHEDULER.get();
+        SCHEDULER.set(true);
+        try {
+            return call.get();
+        } finally {
+            SCHEDULER.set(previous);
+        }
+    }
+
+    static boolean isScheduler() {
+        return SCHEDULER.get();
+    }
+}
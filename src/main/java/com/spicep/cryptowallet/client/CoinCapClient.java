@@ -1,7 +1,9 @@
 package com.spicep.cryptowallet.client;
 
 import com.spicep.cryptowallet.config.CoinCapClientConfig;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponse;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
 import com.spicep.cryptowallet.dto.coincap.CoinCapHistoryResponse;
 import org.springframework.cloud.openfeign.FeignClient;
@@ -12,7 +14,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 @FeignClient(
         name = "coincap-client",
         url = "${coincap.api.base-url}",
-        configuration = CoinCapClientConfig.class
+        configuration = CoinCapClientConfig.class,
+        qualifiers = "coinCapFeignClient",
+        primary = false
 )
 public interface CoinCapClient {
 
@@ -42,4 +46,22 @@ public interface CoinCapClient {
             @RequestParam(value = "search", required = false) String search,
             @RequestParam(value = "limit", defaultValue = "100") Integer limit,
             @RequestParam(value = "offset", defaultValue = "0") Integer offset);
+
+    /**
+     * Same listing as {@link #getAssets}, streamed into symbols only
+     * @param limit Page size
+     * @param offset Number of assets to skip
+     * @return Symbols of the page, best ranked first
+     */
+    @GetMapping("/assets")
+    CoinCapAssetSymbols getAssetSymbols(@RequestParam("limit") Integer limit, @RequestParam("offset") Integer offset);
+
+    /**
+     * Same listing as {@link #getAssets}, streamed into symbol to price only
+     * @param limit Page size
+     * @param offset Number of assets to skip
+     * @return Prices of the page keyed by upper-cased symbol
+     */
+    @GetMapping("/assets")
+    CoinCapAssetPrices getAssetPrices(@RequestParam("limit") Integer limit, @RequestParam("offset") Integer offset);
 }
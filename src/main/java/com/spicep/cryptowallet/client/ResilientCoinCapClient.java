@@ -0,0 +1,107 @@
+package com.spicep.cryptowallet.client;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponse;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.CoinCapHistoryResponse;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer around the Feign client. Every call goes through, from outside in: a bounded retry with
+ * jittered backoff, a circuit breaker, a share of the rate limit of our CoinCap plan and a bulkhead. Calls of the
+ * price update scheduler (see {@link CoinCapCaller}) have a rate limiter share and a bulkhead of their own, so
+ * interactive traffic (e.g. simulations) cannot use up their capacity; other calls get a bulkhead per endpoint.
+ * Calls rejected by the layer fail fast with {@link CoinCapApiException}.
+ */
+@Component
+public class ResilientCoinCapClient implements CoinCapClient {
+
+    static final String INSTANCE = "coincap";
+    static final String SCHEDULER_INSTANCE = INSTANCE + "-scheduler";
+
+    private final CoinCapClient delegate;
+    private final Retry retry;
+    private final CircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+    private final RateLimiter schedulerRateLimiter;
+    private final Bulkhead schedulerBulkhead;
+    private final Bulkhead assetBulkhead;
+    private final Bulkhead historyBulkhead;
+    private final Bulkhead assetsBulkhead;
+
+    public ResilientCoinCapClient(@Qualifier("coinCapFeignClient") CoinCapClient delegate,
+                                  RetryRegistry retryRegistry,
+                                  CircuitBreakerRegistry circuitBreakerRegistry,
+                                  RateLimiterRegistry rateLimiterRegistry,
+                                  BulkheadRegistry bulkheadRegistry) {
+        this.delegate = delegate;
+        this.retry = retryRegistry.retry(INSTANCE);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.rateLimiter = rateLimiterRegistry.rateLimiter(INSTANCE);
+        this.schedulerRateLimiter = rateLimiterRegistry.rateLimiter(SCHEDULER_INSTANCE);
+        this.schedulerBulkhead = bulkheadRegistry.bulkhead(SCHEDULER_INSTANCE);
+        this.assetBulkhead = bulkheadRegistry.bulkhead(INSTANCE + "-asset");
+        this.historyBulkhead = bulkheadRegistry.bulkhead(INSTANCE + "-history");
+        this.assetsBulkhead = bulkheadRegistry.bulkhead(INSTANCE + "-assets");
+    }
+
+    @Override
+    public CoinCapAssetResponse getAsset(String id) {
+        return execute(assetBulkhead, () -> delegate.getAsset(id));
+    }
+
+    @Override
+    public CoinCapHistoryResponse getAssetHistory(String id, String interval, Long start, Long end) {
+        return execute(historyBulkhead, () -> delegate.getAssetHistory(id, interval, start, end));
+    }
+
+    @Override
+    public CoinCapAssetsResponse getAssets(String search, Integer limit, Integer offset) {
+        return execute(assetsBulkhead, () -> delegate.getAssets(search, limit, offset));
+    }
+
+    @Override
+    public CoinCapAssetSymbols getAssetSymbols(Integer limit, Integer offset) {
+        return execute(assetsBulkhead, () -> delegate.getAssetSymbols(limit, offset));
+    }
+
+    @Override
+    public CoinCapAssetPrices getAssetPrices(Integer limit, Integer offset) {
+        return execute(assetsBulkhead, () -> delegate.getAssetPrices(limit, offset));
+    }
+
+    private <T> T execute(Bulkhead endpointBulkhead, Supplier<T> call) {
+        var scheduler = CoinCapCaller.isScheduler();
+        var bulkhead = scheduler ? schedulerBulkhead : endpointBulkhead;
+        var decorated = Bulkhead.decorateSupplier(bulkhead, call);
+        decorated = RateLimiter.decorateSupplier(scheduler ? schedulerRateLimiter : rateLimiter, decorated);
+        decorated = CircuitBreaker.decorateSupplier(circuitBreaker, decorated);
+        decorated = Retry.decorateSupplier(retry, decorated);
+
+        try {
+            return decorated.get();
+        } catch (CallNotPermittedException e) {
+            throw CoinCapApiException.unavailable("circuit breaker is open", e);
+        } catch (RequestNotPermitted e) {
+            throw CoinCapApiException.unavailable("rate limit reached", e);
+        } catch (BulkheadFullException e) {
+            throw CoinCapApiException.unavailable("too many concurrent calls to " + bulkhead.getName(), e);
+        }
+    }
+}
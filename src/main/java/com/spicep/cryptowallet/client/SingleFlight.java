@@ -0,0 +1,77 @@
+package com.spicep.cryptowallet.client;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one: the first caller runs the call, callers arriving while it
+ * is in flight wait for it and get the same result (or the same exception). Nothing is kept once the call completes,
+ * so this is not a cache.
+ *
+ * @param <K> Call key, must implement equals and hashCode
+ * @param <V> Call result
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param key  Key identifying identical calls
+     * @param call Call to run if no identical call is in flight
+     * @return Result of this call, or of the identical call already in flight
+     */
+    public V execute(K key, Supplier<V> call) {
+        var own = new CompletableFuture<V>();
+        var existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+
+        executed.increment();
+        try {
+            var result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return Number of calls that actually ran
+     */
+    public long executed() {
+        return executed.sum();
+    }
+
+    /**
+     * @return Number of calls that shared the result of a call already in flight
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
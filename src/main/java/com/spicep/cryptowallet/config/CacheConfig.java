@@ -0,0 +1,64 @@
+package com.spicep.cryptowallet.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spicep.cryptowallet.service.CoinCapIdLookup;
+import com.spicep.cryptowallet.service.CoinCapResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(CachePolicies.class)
+@Slf4j
+public class CacheConfig {
+
+    /**
+     * One Caffeine cache per configured policy. Caches with refreshAfterWrite reload popular entries in the background
+     * with their loader, so callers never wait on CoinCap for a key that is already cached.
+     * Statistics are recorded for every cache and exported as cache.* metrics
+     */
+    @Bean
+    public CacheManager cacheManager(CachePolicies cachePolicies, CoinCapIdLookup coinCapIdLookup) {
+        Map<String, CacheLoader<Object, Object>> loaders = Map.of(
+                CoinCapResolver.CACHE_NAME, key -> coinCapIdLookup.search((String) key));
+
+        var cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        // Only configured caches exist, an unknown name must not silently get an unbounded cache
+        cacheManager.setCacheNames(List.of());
+
+        cachePolicies.policies().forEach((name, policy) -> {
+            cacheManager.registerCustomCache(name, buildCache(name, policy, loaders.get(name)));
+            log.info("Initialized cache {} with {}", name, policy);
+        });
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> buildCache(String name, CachePolicies.Policy policy,
+                                                    CacheLoader<Object, Object> loader) {
+        var builder = Caffeine.newBuilder()
+                .maximumSize(policy.maximumSize())
+                .recordStats();
+
+        if (policy.expireAfterWrite() != null) {
+            builder.expireAfter(new JitteredExpiry(policy.expireAfterWrite(), policy.jitter()));
+        }
+
+        if (policy.refreshAfterWrite() == null) {
+            return builder.build();
+        }
+        if (loader == null) {
+            log.warn("Cache {} has refreshAfterWrite but no loader, entries will only expire", name);
+            return builder.build();
+        }
+        return builder.refreshAfterWrite(policy.refreshAfterWrite()).build(loader);
+    }
+}
@@ -0,0 +1,33 @@
+package com.spicep.cryptowallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Caffeine policy of each cache, keyed by cache name
+ *
+ * @param policies Policy per cache name
+ */
+@ConfigurationProperties(prefix = "wallet.cache")
+public record CachePolicies(Map<String, Policy> policies) {
+
+    public CachePolicies {
+        policies = policies == null ? Map.of() : Map.copyOf(policies);
+    }
+
+    /**
+     * @param maximumSize       Max number of entries
+     * @param expireAfterWrite  Entries are dropped this long after they were loaded (or last refreshed), if set
+     * @param refreshAfterWrite Entries read after this long are reloaded in the background while the old value is
+     *                          still served, if set. A failed reload keeps the old value
+     * @param jitter            Share of expireAfterWrite taken off at random per entry (0 to 1), so entries loaded
+     *                          together do not expire together
+     */
+    public record Policy(@DefaultValue("500") long maximumSize,
+                         Duration expireAfterWrite,
+                         Duration refreshAfterWrite,
+                         @DefaultValue("0") double jitter) {}
+}
@@ -1,7 +1,17 @@
 package com.spicep.cryptowallet.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spicep.cryptowallet.client.CoinCapAssetsDecoder;
 import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.optionals.OptionalDecoder;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -19,4 +29,15 @@ public class CoinCapClientConfig {
             }
         };
     }
+
+    /**
+     * Default Spring Cloud OpenFeign decoder, with listing projections streamed instead of fully deserialized
+     */
+    @Bean
+    public Decoder feignDecoder(ObjectFactory<HttpMessageConverters> messageConverters,
+                                ObjectProvider<HttpMessageConverterCustomizer> customizers,
+                                ObjectMapper objectMapper) {
+        return new CoinCapAssetsDecoder(objectMapper.getFactory(),
+                new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(messageConverters, customizers))));
+    }
 }
@@ -0,0 +1,30 @@
+package com.spicep.cryptowallet.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class CoinCapHttpClientConfig {
+
+    /**
+     * Exports the state of the pooled Apache HttpClient 5 connection manager used by Feign
+     * (max, available, leased and pending connections) as httpcomponents.httpclient.pool.* metrics
+     */
+    @Bean
+    public MeterBinder coinCapConnectionPoolMetrics(HttpClientConnectionManager connectionManager) {
+        return registry -> {
+            if (connectionManager instanceof PoolingHttpClientConnectionManager pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder(pool, "coincap").bindTo(registry);
+            } else {
+                log.warn("Feign connection manager {} is not pooled, no pool metrics exported",
+                        connectionManager.getClass().getSimpleName());
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.spicep.cryptowallet.config;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Expires each entry after the base duration minus a random share of it, picked again on every write or refresh
+ */
+class JitteredExpiry implements Expiry<Object, Object> {
+
+    private final long baseNanos;
+    private final double jitter;
+
+    JitteredExpiry(Duration base, double jitter) {
+        this.baseNanos = base.toNanos();
+        this.jitter = Math.clamp(jitter, 0, 1);
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return jittered();
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return jittered();
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+
+    long jittered() {
+        if (jitter == 0) {
+            return baseNanos;
+        }
+        return baseNanos - (long) (baseNanos * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+}
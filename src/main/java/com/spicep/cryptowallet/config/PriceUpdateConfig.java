@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -17,8 +18,21 @@ public class PriceUpdateConfig {
     @Value("${wallet.price-update.max-threads:3}")
     private int maxThreads;
 
+    @Value("${wallet.price-update.virtual-threads.enable:false}")
+    private boolean virtualThreads;
+
     @Bean(name = "priceUpdateExecutor")
     public Executor priceUpdateExecutor() {
+        if (virtualThreads) {
+            // Symbol updates only wait on CoinCap and the database, so each runs on its own virtual thread.
+            // PriceUpdateService bounds how many run at once (max-concurrency)
+            var executor = new SimpleAsyncTaskExecutor("price-update-");
+            executor.setVirtualThreads(true);
+
+            log.info("Initialized price update executor with virtual threads");
+            return executor;
+        }
+
         var executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(maxThreads);
         executor.setMaxPoolSize(maxThreads);
@@ -0,0 +1,73 @@
+package com.spicep.cryptowallet.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Records how many SQL statements each API request runs, as the {@code http.server.requests.queries} summary
+ * tagged like {@code http.server.requests} (method and uri pattern), so an N+1 shows up as a jump in its max
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class QueryCountConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${wallet.query-count.enable:true}")
+    private boolean enabled;
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> {
+            if (enabled) {
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(new QueryCountInterceptor()).addPathPatterns("/api/**");
+        }
+    }
+
+    private class QueryCountInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            QueryCounter.start();
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            var queries = QueryCounter.stop();
+            var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            var uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+            DistributionSummary.builder("http.server.requests.queries")
+                    .description("SQL statements run by one API request")
+                    .baseUnit("statements")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(meterRegistry)
+                    .record(queries);
+            log.debug("{} {} ran {} SQL statements", request.getMethod(), uri, queries);
+        }
+    }
+}
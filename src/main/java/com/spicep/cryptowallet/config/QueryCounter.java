@@ -0,0 +1,39 @@
+package com.spicep.cryptowallet.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is open.
+ * Statements of threads without an open count (schedulers, async work) are not counted.
+ */
+public final class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    /**
+     * Opens a count on the current thread
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Closes the count of the current thread
+     *
+     * @return Statements prepared since {@link #start()}, 0 if no count was open
+     */
+    public static int stop() {
+        var count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        var count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
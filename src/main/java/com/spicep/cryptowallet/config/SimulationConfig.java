@@ -0,0 +1,32 @@
+package com.spicep.cryptowallet.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+@Slf4j
+public class SimulationConfig {
+
+    @Value("${simulation.fetch.max-concurrency:16}")
+    private int maxConcurrency;
+
+    /**
+     * Price fetches of a simulation only wait on CoinCap, so each runs on its own virtual thread.
+     * The concurrency limit caps the calls in flight across all simulations
+     */
+    @Bean(name = "simulationExecutor")
+    public Executor simulationExecutor() {
+        var executor = new SimpleAsyncTaskExecutor("simulation-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrency);
+
+        log.info("Initialized simulation executor with max {} concurrent fetches", maxConcurrency);
+        return executor;
+    }
+
+}
@@ -1,19 +1,25 @@
 package com.spicep.cryptowallet.controller;
 
 import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.response.PriceCandle;
+import com.spicep.cryptowallet.enums.PriceResolution;
 import com.spicep.cryptowallet.service.AssetService;
+import com.spicep.cryptowallet.service.PriceRollupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +30,7 @@ import java.util.Optional;
 public class AssetController {
 
     private final AssetService assetService;
+    private final PriceRollupService priceRollupService;
 
     @Operation(
             summary = "Get available cryptocurrency symbols",
@@ -55,4 +62,25 @@ public class AssetController {
 
         return ResponseEntity.ok(assetService.getAvailableAssets(search, size, off));
     }
+
+    @Operation(
+            summary = "Get price history of a symbol",
+            description = "Returns open/high/low/close candles for a symbol from locally recorded prices. " +
+                    "Long ranges are served from daily rollups, shorter ones from hourly rollups or raw prices, " +
+                    "unless a resolution is given. from, to and candle times are local time of the server zone; " +
+                    "daily candles cover UTC days, so they start at UTC midnight expressed in that zone."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved price history"),
+            @ApiResponse(responseCode = "400", description = "Invalid range or parameters")
+    })
+    @GetMapping("/{symbol}/history")
+    public ResponseEntity<List<PriceCandle>> getPriceHistory(
+            @PathVariable String symbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "RAW, HOUR or DAY") @RequestParam(required = false) PriceResolution resolution) {
+
+        return ResponseEntity.ok(priceRollupService.getPriceHistory(symbol, from, to, resolution));
+    }
 }
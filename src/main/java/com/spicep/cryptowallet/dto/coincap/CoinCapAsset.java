@@ -5,11 +5,11 @@ public record CoinCapAsset(
         String rank,
         String symbol,
         String name,
-        String priceUsd,
-        String supply,
-        String maxSupply,
-        String marketCapUsd,
-        String volumeUsd24Hr,
-        String changePercent24Hr,
-        String vwap24Hr
+        LazyDecimal priceUsd,
+        LazyDecimal supply,
+        LazyDecimal maxSupply,
+        LazyDecimal marketCapUsd,
+        LazyDecimal volumeUsd24Hr,
+        LazyDecimal changePercent24Hr,
+        LazyDecimal vwap24Hr
 ) {}
@@ -0,0 +1,15 @@
+package com.spicep.cryptowallet.dto.coincap;
+
+import java.util.Map;
+
+/**
+ * Symbol to price projection of a CoinCap assets listing page, decoded without building {@link CoinCapAsset}s
+ *
+ * @param pricesBySymbol USD price keyed by upper-cased symbol, the best ranked asset wins for an ambiguous symbol
+ * @param assetCount     Number of assets on the page
+ */
+public record CoinCapAssetPrices(
+        Map<String, LazyDecimal> pricesBySymbol,
+        int assetCount,
+        Long timestamp
+) {}
@@ -0,0 +1,15 @@
+package com.spicep.cryptowallet.dto.coincap;
+
+import java.util.List;
+
+/**
+ * Symbols-only projection of a CoinCap assets listing page, decoded without building {@link CoinCapAsset}s
+ *
+ * @param symbols    Symbols in listing order (best ranked first), may contain duplicates
+ * @param assetCount Number of assets on the page
+ */
+public record CoinCapAssetSymbols(
+        List<String> symbols,
+        int assetCount,
+        Long timestamp
+) {}
@@ -1,7 +1,7 @@
 package com.spicep.cryptowallet.dto.coincap;
 
 public record CoinCapHistoryData(
-        String priceUsd,
+        LazyDecimal priceUsd,
         Long time,
         String date
 ) {}
@@ -0,0 +1,84 @@
+package com.spicep.cryptowallet.dto.coincap;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Decimal number of a CoinCap payload. CoinCap sends numbers as strings with up to ~30 digits; the text is kept as
+ * received and only parsed to a {@link BigDecimal} the first time {@link #decimalValue()} is called, so the many
+ * numeric fields nobody reads are never parsed. Serializes back to the same text.
+ */
+@JsonDeserialize(using = LazyDecimal.Deserializer.class)
+public final class LazyDecimal {
+
+    private final String text;
+
+    // Racy single-check caching is fine, BigDecimal is immutable and parsing is idempotent
+    private BigDecimal value;
+
+    private LazyDecimal(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text Decimal number as text
+     * @return Lazy decimal over the text, or null for a null or blank text
+     */
+    public static LazyDecimal of(String text) {
+        return text == null || text.isBlank() ? null : new LazyDecimal(text);
+    }
+
+    /**
+     * @return The number, parsed on first access
+     * @throws NumberFormatException if the text is not a decimal number
+     */
+    public BigDecimal decimalValue() {
+        var parsed = value;
+        if (parsed == null) {
+            parsed = new BigDecimal(text);
+            value = parsed;
+        }
+        return parsed;
+    }
+
+    /**
+     * @return The number as received
+     */
+    @JsonValue
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof LazyDecimal other && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    /**
+     * Takes the token text of JSON strings and numbers without converting it
+     */
+    static final class Deserializer extends JsonDeserializer<LazyDecimal> {
+
+        @Override
+        public LazyDecimal deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            var token = parser.currentToken();
+            if (token == JsonToken.VALUE_STRING || token.isNumeric()) {
+                return of(parser.getText());
+            }
+            return (LazyDecimal) context.handleUnexpectedToken(LazyDecimal.class, parser);
+        }
+    }
+}
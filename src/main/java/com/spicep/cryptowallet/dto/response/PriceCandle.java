@@ -0,0 +1,13 @@
+package com.spicep.cryptowallet.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record PriceCandle(
+        LocalDateTime time,
+        BigDecimal open,
+        BigDecimal high,
+        BigDecimal low,
+        BigDecimal close,
+        Integer samples
+) {}
@@ -3,15 +3,18 @@ package com.spicep.cryptowallet.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -24,6 +27,8 @@ import java.util.UUID;
 @EntityListeners(AuditingEntityListener.class)
 public class Asset {
 
+    private static final int PRICE_SCALE = 2;
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -39,11 +44,13 @@ public class Asset {
     @NotNull
     @Positive
     @Column(nullable = false, precision = 20, scale = 8)
+    @Setter(AccessLevel.NONE)
     private BigDecimal quantity;
 
     @NotNull
     @Positive
     @Column(name = "current_price", nullable = false, precision = 20, scale = 2)
+    @Setter(AccessLevel.NONE)
     private BigDecimal currentPrice;
 
     @NotNull
@@ -51,6 +58,11 @@ public class Asset {
     @Column(name = "acquisition_price", nullable = false, precision = 20, scale = 2)
     private BigDecimal acquisitionPrice;
 
+    // quantity * current price, kept up to date on every change so reads never compute it. quantity and current price
+    // have no setters, the update methods change them together with this
+    @Column(name = "market_value", nullable = false, precision = 38, scale = 10)
+    private BigDecimal marketValue;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -59,17 +71,35 @@ public class Asset {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Sets the price, rounded like the current_price column so the market value matches what is stored
+     */
     public void updatePrice(BigDecimal newPrice) {
-        this.currentPrice = newPrice;
+        this.currentPrice = newPrice.setScale(PRICE_SCALE, RoundingMode.HALF_UP);
         this.updatedAt = LocalDateTime.now();
+        revalue();
+    }
+
+    public void updateQuantity(BigDecimal newQuantity) {
+        this.quantity = newQuantity;
+        revalue();
     }
 
     /**
-     * Calculates the total value of this asset (quantity * current price)
-     * @return Total value in USD
+     * @return Total value of this asset in USD (quantity * current price), as last calculated
      */
     public BigDecimal getValue() {
-        return quantity.multiply(currentPrice);
+        if (marketValue == null) {
+            // Built in memory and not revalued yet
+            revalue();
+        }
+        return marketValue;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void revalue() {
+        marketValue = quantity.multiply(currentPrice);
     }
 
 }
@@ -0,0 +1,44 @@
+package com.spicep.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "historical_prices")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoricalPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @NotNull
+    @Column(nullable = false)
+    private String symbol;
+
+    @NotNull
+    @Column(name = "price_date", nullable = false)
+    private LocalDate priceDate;
+
+    @NotNull
+    @Positive
+    @Column(nullable = false, precision = 30, scale = 10)
+    private BigDecimal price;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -36,6 +36,12 @@ public class Wallet {
     @Builder.Default
     private List<Asset> assets = new ArrayList<>();
 
+    // Sum of the asset market values, maintained with set-based SQL (see WalletRepository and AssetRepository) so
+    // concurrent price ticks and quantity changes never overwrite each other. The field mirrors it for responses
+    @Column(name = "total_value", insertable = false, updatable = false, precision = 38, scale = 10)
+    @Builder.Default
+    private BigDecimal totalValue = BigDecimal.ZERO;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -47,20 +53,22 @@ public class Wallet {
     public void addAsset(Asset asset) {
         assets.add(asset);
         asset.setWallet(this);
+        totalValue = totalValue.add(asset.getValue());
     }
 
     public void removeAsset(Asset asset) {
         assets.remove(asset);
         asset.setWallet(null);
+        totalValue = totalValue.subtract(asset.getValue());
     }
 
     /**
-     * Calculates the total value of the wallet in USD
-     * @return Total value of all assets
+     * Changes quantity and price of one of the assets and moves the total by the difference in its value
      */
-    public BigDecimal getTotalValue() {
-        return assets.stream()
-                .map(Asset::getValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public void updateAsset(Asset asset, BigDecimal quantity, BigDecimal price) {
+        var previousValue = asset.getValue();
+        asset.updateQuantity(quantity);
+        asset.updatePrice(price);
+        totalValue = totalValue.add(asset.getValue().subtract(previousValue));
     }
 }
@@ -0,0 +1,25 @@
+package com.spicep.cryptowallet.enums;
+
+import java.time.Duration;
+
+//Resolutions price history can be read at, from raw observations to daily OHLC rollups
+public enum PriceResolution {
+    RAW,
+    HOUR,
+    DAY;
+
+    /**
+     * Picks the coarsest resolution that still gives a useful number of points for the range
+     * @param range Requested time range
+     * @return DAY for a week or more, HOUR for half a day or more, RAW otherwise
+     */
+    public static PriceResolution forRange(Duration range) {
+        if (range.compareTo(Duration.ofDays(7)) >= 0) {
+            return DAY;
+        }
+        if (range.compareTo(Duration.ofHours(12)) >= 0) {
+            return HOUR;
+        }
+        return RAW;
+    }
+}
@@ -19,4 +19,10 @@ public class CoinCapApiException extends RuntimeException {
                 "Failed to fetch historical price for %s on %s".formatted(symbol, date),
                 cause);
     }
+
+    public static CoinCapApiException unavailable(String reason, Throwable cause) {
+        return new CoinCapApiException(
+                "CoinCap is unavailable: %s".formatted(reason),
+                cause);
+    }
 }
@@ -96,6 +96,17 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(PriceHistoryValidationException.class)
+    public ProblemDetail handlePriceHistoryValidation(PriceHistoryValidationException ex) {
+        log.warn("Price history validation failed: {}", ex.getMessage());
+
+        var problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problemDetail.setTitle("Invalid Price History Request");
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
      //handles all other exceptions (500 Internal Server Error)
     @ExceptionHandler(Exception.class)
     public ProblemDetail handleGenericException(Exception ex) {
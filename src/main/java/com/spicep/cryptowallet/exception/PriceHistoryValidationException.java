@@ -0,0 +1,15 @@
+package com.spicep.cryptowallet.exception;
+
+import java.time.LocalDateTime;
+
+public class PriceHistoryValidationException extends RuntimeException {
+
+    private PriceHistoryValidationException(String message) {
+        super(message);
+    }
+
+    public static PriceHistoryValidationException invalidRange(LocalDateTime from, LocalDateTime to) {
+        return new PriceHistoryValidationException(
+                "Invalid price history range: %s must be before %s".formatted(from, to));
+    }
+}
@@ -2,21 +2,77 @@ package com.spicep.cryptowallet.repository;
 
 import com.spicep.cryptowallet.entity.Asset;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface AssetRepository extends JpaRepository<Asset, UUID> {
 
-    @Query("SELECT a FROM Asset a WHERE UPPER(a.symbol) = UPPER(:symbol)")
+    /**
+     * Symbols are stored upper-cased (checked by the database), so only the parameter is normalised and the symbol
+     * index can be used
+     */
+    @Query("SELECT a FROM Asset a WHERE a.symbol = UPPER(:symbol)")
     List<Asset> findBySymbolIgnoreCase(String symbol);
 
-    @Query("SELECT DISTINCT a.symbol FROM Asset a")
+    /**
+     * Distinct symbols as a skip scan over the symbol index: each step jumps to the next greater symbol, so the
+     * cost follows the number of symbols instead of the number of assets
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE symbols AS (
+                (SELECT symbol FROM assets ORDER BY symbol LIMIT 1)
+                UNION ALL
+                SELECT (SELECT a.symbol FROM assets a WHERE a.symbol > s.symbol ORDER BY a.symbol LIMIT 1)
+                FROM symbols s
+                WHERE s.symbol IS NOT NULL
+            )
+            SELECT symbol FROM symbols WHERE symbol IS NOT NULL
+            """)
     List<String> findDistinctSymbols();
 
-    @Query("SELECT a FROM Asset a WHERE a.wallet.id = :walletId AND UPPER(a.symbol) = UPPER(:symbol)")
-    List<Asset> findByWalletIdAndSymbol(UUID walletId, String symbol);
+    /**
+     * Set-based price update for every asset holding a symbol, without loading the entities. Market values are
+     * recalculated and the change in value is added to the total of every affected wallet in the same statement.
+     * Asset rows are locked first and then wallets, both in id order (the same order as an asset edit, asset row then
+     * wallet row), so concurrent ticks and edits queue up on shared rows instead of deadlocking.
+     * Assets written since notUpdatedSince keep their newer price, so an update that ran late cannot overwrite it.
+     * Pending changes are flushed before and the persistence context is cleared after, so no stale asset survives
+     * @return Number of updated assets
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            WITH previous AS (
+                SELECT id, wallet_id, market_value, quantity * CAST(:price AS DECIMAL(20, 2)) AS new_value
+                FROM assets
+                WHERE symbol = UPPER(:symbol)
+                  AND (updated_at IS NULL OR updated_at < :notUpdatedSince)
+                ORDER BY id
+                FOR UPDATE
+            ), totals AS (
+                UPDATE wallets w
+                SET total_value = w.total_value + d.delta
+                FROM (SELECT locked.id, s.delta
+                      FROM wallets locked
+                      JOIN (SELECT wallet_id, SUM(new_value - market_value) AS delta
+                            FROM previous
+                            GROUP BY wallet_id) s ON s.wallet_id = locked.id
+                      ORDER BY locked.id
+                      FOR UPDATE OF locked) d
+                WHERE w.id = d.id
+            )
+            UPDATE assets a
+            SET current_price = :price, market_value = p.new_value, updated_at = :updatedAt
+            FROM previous p
+            WHERE a.id = p.id
+            """)
+    int updatePriceBySymbol(String symbol, BigDecimal price, LocalDateTime updatedAt, LocalDateTime notUpdatedSince);
 }
@@ -0,0 +1,32 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface HistoricalPriceRepository extends JpaRepository<HistoricalPrice, UUID> {
+
+    Optional<HistoricalPrice> findBySymbolAndPriceDate(String symbol, LocalDate priceDate);
+
+    /**
+     * Stores a historical price unless one is already stored for that symbol and date (e.g. by a concurrent request)
+     * @return 1 if stored, 0 if it already existed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO historical_prices (id, symbol, price_date, price, created_at)
+            VALUES (gen_random_uuid(), :symbol, :priceDate, :price, now())
+            ON CONFLICT (symbol, price_date) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(String symbol, LocalDate priceDate, BigDecimal price);
+}
@@ -4,8 +4,17 @@ import com.spicep.cryptowallet.entity.PriceHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface PriceHistoryRepository extends JpaRepository<PriceHistory, UUID> {
+
+    /**
+     * Price history of a symbol in a time range. The range on created_at lets PostgreSQL prune
+     * to the monthly partitions that overlap it
+     */
+    List<PriceHistory> findBySymbolAndCreatedAtBetweenOrderByCreatedAt(String symbol, LocalDateTime from,
+                                                                       LocalDateTime to);
 }
@@ -1,11 +1,90 @@
 package com.spicep.cryptowallet.repository;
 
 import com.spicep.cryptowallet.entity.Wallet;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+
+    /**
+     * Loads a wallet with its user and all its assets in one statement (left joins), for reads that map the
+     * whole wallet
+     */
+    @EntityGraph(attributePaths = {"user", "assets"})
+    @Query("SELECT w FROM Wallet w WHERE w.id = :id")
+    Optional<Wallet> findWithUserAndAssetsById(UUID id);
+
+    /**
+     * Brings the stored total of a wallet in line with its stored asset values, after quantity changes.
+     * The wallet row is locked first and summed in a later statement, so price ticks that committed while this
+     * waited for the lock are part of the sum. Pending changes are flushed first, asset rows are locked before the
+     * wallet like a price tick does
+     * @return The total as stored
+     */
+    @Transactional
+    default BigDecimal refreshTotalValue(UUID walletId) {
+        flush();
+        lockById(walletId);
+        recalculateTotalValue(walletId);
+        return findTotalValueById(walletId);
+    }
+
+    /**
+     * Same as {@link #refreshTotalValue(UUID)} for every wallet holding a symbol, wallets are locked in id order
+     */
+    @Transactional
+    default void refreshTotalValues(String symbol) {
+        flush();
+        lockIdsBySymbol(symbol);
+        recalculateTotalValues(symbol);
+    }
+
+    @Query("SELECT w.totalValue FROM Wallet w WHERE w.id = :id")
+    BigDecimal findTotalValueById(UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w.id FROM Wallet w WHERE w.id = :id")
+    Optional<UUID> lockById(UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT w.id FROM Wallet w
+            WHERE w.id IN (SELECT a.wallet.id FROM Asset a WHERE a.symbol = UPPER(:symbol))
+            ORDER BY w.id
+            """)
+    List<UUID> lockIdsBySymbol(String symbol);
+
+    /**
+     * Sets the stored total of a wallet to the sum of its stored asset values
+     */
+    @Modifying
+    @Query("""
+            UPDATE Wallet w
+            SET w.totalValue = (SELECT COALESCE(SUM(a.marketValue), 0) FROM Asset a WHERE a.wallet.id = :walletId)
+            WHERE w.id = :walletId
+            """)
+    int recalculateTotalValue(UUID walletId);
+
+    /**
+     * Same as {@link #recalculateTotalValue(UUID)} for every wallet holding a symbol
+     */
+    @Modifying
+    @Query("""
+            UPDATE Wallet w
+            SET w.totalValue = (SELECT COALESCE(SUM(a.marketValue), 0) FROM Asset a WHERE a.wallet = w)
+            WHERE w.id IN (SELECT a.wallet.id FROM Asset a WHERE a.symbol = UPPER(:symbol))
+            """)
+    int recalculateTotalValues(String symbol);
 }
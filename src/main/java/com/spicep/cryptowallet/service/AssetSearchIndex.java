@@ -0,0 +1,101 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable search index over the CoinCap asset catalogue, built once per catalogue snapshot.
+ * Matches a term against symbol, name and id: an exact symbol first, then prefix matches, then substring matches,
+ * each group ordered by market cap. Pagination happens in memory, so a lookup never calls CoinCap.
+ */
+public final class AssetSearchIndex {
+
+    static final AssetSearchIndex EMPTY = new AssetSearchIndex(List.of());
+
+    private static final Comparator<CoinCapAsset> BY_MARKET_CAP =
+            Comparator.comparing(AssetSearchIndex::marketCapOf, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Assets by market cap, biggest first, with their lower-cased search keys at the same position
+    private final List<CoinCapAsset> assets;
+    private final String[][] keys;
+
+    private AssetSearchIndex(List<CoinCapAsset> assets) {
+        this.assets = assets;
+        this.keys = new String[assets.size()][];
+        for (int i = 0; i < assets.size(); i++) {
+            var asset = assets.get(i);
+            keys[i] = new String[]{normalize(asset.symbol()), normalize(asset.name()), normalize(asset.id())};
+        }
+    }
+
+    /**
+     * @param assets Catalogue assets
+     * @return Index over the given assets
+     */
+    public static AssetSearchIndex of(List<CoinCapAsset> assets) {
+        return new AssetSearchIndex(assets.stream().sorted(BY_MARKET_CAP).toList());
+    }
+
+    /**
+     * @param search Search term, or null/blank for every asset
+     * @param limit  Max number of results
+     * @param offset Number of results to skip
+     * @return Matching assets, best match first
+     */
+    public List<CoinCapAsset> search(String search, int limit, int offset) {
+        var term = normalize(search);
+        if (term.isEmpty()) {
+            return page(assets, limit, offset);
+        }
+
+        List<CoinCapAsset> exact = new ArrayList<>();
+        List<CoinCapAsset> prefix = new ArrayList<>();
+        List<CoinCapAsset> substring = new ArrayList<>();
+
+        for (int i = 0; i < keys.length; i++) {
+            var entry = keys[i];
+            if (entry[0].equals(term)) {
+                exact.add(assets.get(i));
+            } else if (entry[0].startsWith(term) || entry[1].startsWith(term) || entry[2].startsWith(term)) {
+                prefix.add(assets.get(i));
+            } else if (entry[0].contains(term) || entry[1].contains(term) || entry[2].contains(term)) {
+                substring.add(assets.get(i));
+            }
+        }
+
+        exact.addAll(prefix);
+        exact.addAll(substring);
+        return page(exact, limit, offset);
+    }
+
+    /**
+     * @return Number of indexed assets
+     */
+    public int size() {
+        return assets.size();
+    }
+
+    private static List<CoinCapAsset> page(List<CoinCapAsset> results, int limit, int offset) {
+        if (offset >= results.size()) {
+            return List.of();
+        }
+        return List.copyOf(results.subList(offset, Math.min(results.size(), offset + limit)));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static BigDecimal marketCapOf(CoinCapAsset asset) {
+        try {
+            return asset.marketCapUsd() == null ? null : asset.marketCapUsd().decimalValue();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
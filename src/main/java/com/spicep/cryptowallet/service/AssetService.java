@@ -4,7 +4,6 @@ import com.spicep.cryptowallet.client.CoinCapClient;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,33 +14,37 @@ import java.util.List;
 public class AssetService {
 
     private final CoinCapClient coinCapClient;
+    private final CoinCapCatalogue coinCapCatalogue;
 
     /**
-     * Get list of all available crypto symbols from CoinCap
+     * Get list of all available crypto symbols, from the local CoinCap catalogue when it is loaded
      * @return A simple list of crypto symbols
      */
-    @Cacheable(cacheNames = "availableSymbols")
     public List<String> getAvailableSymbols() {
-        log.info("Fetching available symbols from CoinCap (cache miss)");
-
-        var response = coinCapClient.getAssets("", 2000, 0);
-
-        return response.data().stream().map(CoinCapAsset::symbol).distinct().sorted().toList();
+        var catalogue = coinCapCatalogue.getAssets();
+        if (catalogue.isEmpty()) {
+            // Streamed listing, only the symbols of the page are kept in memory
+            log.info("CoinCap catalogue not loaded, fetching available symbols from CoinCap");
+            return coinCapClient.getAssetSymbols(2000, 0).symbols().stream().distinct().sorted().toList();
+        }
+
+        return catalogue.stream().map(CoinCapAsset::symbol).distinct().sorted().toList();
     }
 
     /**
-     * Search for cryptocurrencies on CoinCap with pagination
-     * Cached based on search term and limit
+     * Search for cryptocurrencies with pagination, from the in-memory index of the CoinCap catalogue when it is loaded.
+     * The search matches symbol, name or id by prefix or substring, ignoring case, and ranks by market cap
      *
      * @param search Optional search term (can be null)
      * @param limit Number of results (default 100, max 2000)
      */
-    @Cacheable(cacheNames = "availableAssets", key = "#search + '-' + #limit + '-'+ #offset")
     public List<CoinCapAsset> getAvailableAssets(String search, Integer limit, Integer offset) {
-        log.info("Fetching available assets from CoinCap: search={}, limit={}, offset={} (cache miss)", search, limit, offset);
-
-        var response = coinCapClient.getAssets(search, limit, offset);
+        if (coinCapCatalogue.getAssets().isEmpty()) {
+            log.info("CoinCap catalogue not loaded, fetching available assets from CoinCap: search={}, limit={}, "
+                    + "offset={}", search, limit, offset);
+            return coinCapClient.getAssets(search, limit, offset).data();
+        }
 
-        return response.data();
+        return coinCapCatalogue.search(search, limit, offset);
     }
 }
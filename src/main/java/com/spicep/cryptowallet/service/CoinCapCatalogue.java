@@ -0,0 +1,207 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.client.CoinCapClient;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory snapshot of the CoinCap asset catalogue (symbol to CoinCap id), loaded with a few paged listing calls
+ * and refreshed in the background. Readers always see a complete snapshot: a refresh builds a new one and swaps it
+ * in, and a failed refresh keeps the old one. Every refresh is also written to the coincap_assets table (only what
+ * changed since the last successful write, so a failed write is caught up by the next refresh), and startup warms
+ * the snapshot from that table before asking CoinCap.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoinCapCatalogue {
+
+    // Best ranked asset first, so an ambiguous symbol always resolves to the same id
+    private static final Comparator<CoinCapAsset> BY_RANK =
+            Comparator.comparingInt(CoinCapCatalogue::rankOf).thenComparing(CoinCapAsset::id);
+
+    private final CoinCapClient coinCapClient;
+    private final CoinCapCatalogueStore catalogueStore;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Contents of coincap_assets by id as of the warm-up or the last successful write, null when not known
+    private volatile Map<String, CoinCapAsset> storedById;
+
+    @Value("${coincap.catalogue.enable:false}")
+    private boolean enabled;
+
+    @Value("${coincap.catalogue.page-size:2000}")
+    private int pageSize;
+
+    @Value("${coincap.catalogue.max-pages:5}")
+    private int maxPages;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        warmUp();
+        refresh();
+    }
+
+    /**
+     * Loads the snapshot from the stored catalogue, so lookups work before CoinCap answers
+     */
+    void warmUp() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            var stored = catalogueStore.loadAll();
+            storedById = byId(stored);
+            if (!stored.isEmpty()) {
+                snapshot = Snapshot.of(stored);
+                log.info("Warmed CoinCap catalogue with {} stored assets", stored.size());
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to load the stored CoinCap catalogue", e);
+        }
+    }
+
+    /**
+     * Reloads the whole catalogue. The current snapshot keeps answering until the new one is complete
+     */
+    @Scheduled(fixedDelayString = "${coincap.catalogue.refresh-interval:3600000}",
+            initialDelayString = "${coincap.catalogue.refresh-interval:3600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            var assets = loadAssets();
+            if (assets.isEmpty()) {
+                log.warn("CoinCap returned an empty asset catalogue, keeping the current snapshot");
+                return;
+            }
+
+            snapshot = Snapshot.of(assets);
+            store(snapshot);
+            log.info("Loaded CoinCap catalogue with {} assets ({} symbols)", assets.size(),
+                    snapshot.idsBySymbol().size());
+        } catch (FeignException | CoinCapApiException e) {
+            log.error("Failed to refresh CoinCap catalogue, keeping the snapshot from {}", snapshot.loadedAt(), e);
+        }
+    }
+
+    /**
+     * @param symbol Asset symbol (e.g. "btc")
+     * @return CoinCap id of the best ranked asset with that symbol, or empty if the symbol is not in the catalogue
+     */
+    public Optional<String> findId(String symbol) {
+        return Optional.ofNullable(snapshot.idsBySymbol().get(symbol.toUpperCase()));
+    }
+
+    /**
+     * @return Every asset of the current snapshot, best ranked first
+     */
+    public List<CoinCapAsset> getAssets() {
+        return snapshot.assets();
+    }
+
+    /**
+     * Searches the current snapshot, see {@link AssetSearchIndex#search(String, int, int)}
+     */
+    public List<CoinCapAsset> search(String search, int limit, int offset) {
+        return snapshot.searchIndex().search(search, limit, offset);
+    }
+
+    /**
+     * Writes the assets that are new or changed compared to what is stored and deletes the ones no longer listed.
+     * The stored contents only move on once the write succeeded, so a failed write is part of the next diff
+     */
+    private void store(Snapshot current) {
+        Map<String, CoinCapAsset> stored;
+        try {
+            // Unknown after a failed warm-up, read back from the table
+            stored = new HashMap<>(storedById != null ? storedById : byId(catalogueStore.loadAll()));
+        } catch (DataAccessException e) {
+            log.error("Failed to read the stored CoinCap catalogue, storing it with the next refresh", e);
+            return;
+        }
+
+        List<CoinCapAsset> changed = new ArrayList<>();
+        for (CoinCapAsset asset : current.assets()) {
+            if (!asset.equals(stored.remove(asset.id()))) {
+                changed.add(asset);
+            }
+        }
+
+        try {
+            catalogueStore.applyDiff(changed, stored.keySet());
+            storedById = byId(current.assets());
+            log.debug("Stored CoinCap catalogue diff: {} changed, {} removed", changed.size(), stored.size());
+        } catch (DataAccessException e) {
+            log.error("Failed to store CoinCap catalogue, storing it with the next refresh", e);
+        }
+    }
+
+    private static Map<String, CoinCapAsset> byId(List<CoinCapAsset> assets) {
+        Map<String, CoinCapAsset> byId = new HashMap<>();
+        assets.stream().filter(asset -> asset.id() != null).forEach(asset -> byId.put(asset.id(), asset));
+        return byId;
+    }
+
+    private List<CoinCapAsset> loadAssets() {
+        List<CoinCapAsset> assets = new ArrayList<>();
+        for (int page = 0; page < maxPages; page++) {
+            var response = coinCapClient.getAssets(null, pageSize, page * pageSize);
+            var data = response == null || response.data() == null ? List.<CoinCapAsset>of() : response.data();
+            assets.addAll(data);
+
+            if (data.size() < pageSize) {
+                break;
+            }
+        }
+        return assets;
+    }
+
+    private static int rankOf(CoinCapAsset asset) {
+        try {
+            return Integer.parseInt(asset.rank());
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    // The search index is part of the snapshot, so it is swapped together with the catalogue it was built from
+    private record Snapshot(Map<String, String> idsBySymbol, List<CoinCapAsset> assets, AssetSearchIndex searchIndex,
+                            Instant loadedAt) {
+
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), AssetSearchIndex.EMPTY, null);
+
+        private static Snapshot of(List<CoinCapAsset> assets) {
+            var sorted = assets.stream().filter(a -> a.id() != null).sorted(BY_RANK).toList();
+
+            Map<String, String> idsBySymbol = new HashMap<>();
+            for (CoinCapAsset asset : sorted) {
+                if (asset.symbol() != null) {
+                    idsBySymbol.putIfAbsent(asset.symbol().toUpperCase(), asset.id());
+                }
+            }
+            return new Snapshot(Map.copyOf(idsBySymbol), sorted, AssetSearchIndex.of(sorted), Instant.now());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Table backed copy of the CoinCap asset catalogue. Only the difference between two snapshots is written.
+ */
+@Component
+@RequiredArgsConstructor
+public class CoinCapCatalogueStore {
+
+    private static final String SELECT_SQL = """
+            SELECT id, rank, symbol, name, price_usd, supply, max_supply, market_cap_usd, volume_usd_24hr,
+                   change_percent_24hr, vwap_24hr
+            FROM coincap_assets
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO coincap_assets (id, rank, symbol, name, price_usd, supply, max_supply, market_cap_usd,
+                                        volume_usd_24hr, change_percent_24hr, vwap_24hr, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                rank = EXCLUDED.rank,
+                symbol = EXCLUDED.symbol,
+                name = EXCLUDED.name,
+                price_usd = EXCLUDED.price_usd,
+                supply = EXCLUDED.supply,
+                max_supply = EXCLUDED.max_supply,
+                market_cap_usd = EXCLUDED.market_cap_usd,
+                volume_usd_24hr = EXCLUDED.volume_usd_24hr,
+                change_percent_24hr = EXCLUDED.change_percent_24hr,
+                vwap_24hr = EXCLUDED.vwap_24hr,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String DELETE_SQL = "DELETE FROM coincap_assets WHERE id = ?";
+
+    private static final RowMapper<CoinCapAsset> ASSET_MAPPER = (rs, rowNum) -> new CoinCapAsset(
+            rs.getString("id"),
+            rs.getString("rank"),
+            rs.getString("symbol"),
+            rs.getString("name"),
+            LazyDecimal.of(rs.getString("price_usd")),
+            LazyDecimal.of(rs.getString("supply")),
+            LazyDecimal.of(rs.getString("max_supply")),
+            LazyDecimal.of(rs.getString("market_cap_usd")),
+            LazyDecimal.of(rs.getString("volume_usd_24hr")),
+            LazyDecimal.of(rs.getString("change_percent_24hr")),
+            LazyDecimal.of(rs.getString("vwap_24hr")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return Every stored asset
+     */
+    public List<CoinCapAsset> loadAll() {
+        return jdbcTemplate.query(SELECT_SQL, ASSET_MAPPER);
+    }
+
+    /**
+     * Writes the difference between two snapshots in one transaction
+     *
+     * @param changed    New or changed assets
+     * @param removedIds Ids of assets that are no longer listed
+     */
+    @Transactional
+    public void applyDiff(Collection<CoinCapAsset> changed, Collection<String> removedIds) {
+        var now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, changed.stream()
+                .map(a -> new Object[]{a.id(), toInteger(a.rank()), a.symbol(), a.name(), toDecimal(a.priceUsd()),
+                        toDecimal(a.supply()), toDecimal(a.maxSupply()), toDecimal(a.marketCapUsd()),
+                        toDecimal(a.volumeUsd24Hr()), toDecimal(a.changePercent24Hr()), toDecimal(a.vwap24Hr()), now})
+                .toList());
+
+        jdbcTemplate.batchUpdate(DELETE_SQL, removedIds.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    private static Integer toInteger(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal toDecimal(LazyDecimal value) {
+        try {
+            return value == null ? null : value.decimalValue();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
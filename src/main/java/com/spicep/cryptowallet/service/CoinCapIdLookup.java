@@ -0,0 +1,36 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.client.CoinCapClient;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches CoinCap for the id of a symbol. Used by the resolver for symbols missing from the catalogue and as the
+ * loader that refreshes the coincapIds cache in the background.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoinCapIdLookup {
+
+    private final CoinCapClient coinCapClient;
+
+    /**
+     * @param symbol asset symbol (e.g. "BTC")
+     * @return Coincap asset ID of the first exact match, or the lowercased symbol if search finds no exact match
+     * @throws feign.FeignException if the search fails, so a cached id is kept instead of being replaced
+     */
+    public String search(String symbol) {
+        var resp = coinCapClient.getAssets(symbol, 100, 0);
+        var id = resp.data().stream()
+                .filter(a -> symbol.equalsIgnoreCase(a.symbol()))
+                .map(CoinCapAsset::id)
+                .findFirst()
+                .orElse(symbol.toLowerCase());
+
+        log.debug("Resolved {} to CoinCap id {} by search", symbol, id);
+        return id;
+    }
+}
@@ -1,11 +1,11 @@
 package com.spicep.cryptowallet.service;
 
-import com.spicep.cryptowallet.client.CoinCapClient;
-import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
 import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -13,24 +13,35 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class CoinCapResolver {
 
-    private final CoinCapClient coinCapClient;
+    public static final String CACHE_NAME = "coincapIds";
+
+    private final CoinCapCatalogue coinCapCatalogue;
+    private final CoinCapIdLookup coinCapIdLookup;
+    private final CacheManager cacheManager;
 
     /**
-     * Searches for a coincap asset ID from a symbol and caches the result to avoid repeated calls.
-     * Falls back to the lowercased symbol if search finds no exact match
+     * Resolves the coincap asset ID of a symbol from the preloaded catalogue.
+     * Symbols missing from the catalogue are searched on CoinCap and the result is cached to avoid repeated calls.
+     * Falls back to the lowercased symbol if search finds no exact match or fails
      * @param symbol asset symbol (e.g. "BTC")
      * @return Coincap asset ID to use in the api call
      */
-    @Cacheable(cacheNames = "coincapIds", key = "#symbol.toUpperCase()")
     public String resolveCoinCapId(String symbol) {
+        var catalogued = coinCapCatalogue.findId(symbol);
+        if (catalogued.isPresent()) {
+            return catalogued.get();
+        }
+
         try {
-            var resp = coinCapClient.getAssets(symbol, 100, 0);
-            return resp.data().stream()
-                    .filter(a -> symbol.equalsIgnoreCase(a.symbol()))
-                    .map(CoinCapAsset::id)
-                    .findFirst()
-                    .orElse(symbol.toLowerCase());
-        } catch (FeignException e) {
+            var cache = cacheManager.getCache(CACHE_NAME);
+            if (cache == null) {
+                return coinCapIdLookup.search(symbol);
+            }
+
+            // Concurrent misses for the same symbol wait for a single search instead of each calling CoinCap
+            return cache.get(symbol.toUpperCase(), () -> coinCapIdLookup.search(symbol));
+        } catch (FeignException | CoinCapApiException | Cache.ValueRetrievalException e) {
+            // Not cached, so the next call searches again
             log.warn("CoinCap search failed for {}. Falling back to symbol path.", symbol, e);
             return symbol.toLowerCase();
         }
@@ -1,18 +1,25 @@
 package com.spicep.cryptowallet.service;
 
 import com.spicep.cryptowallet.client.CoinCapClient;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
 import com.spicep.cryptowallet.enums.CoinCapInterval;
 import com.spicep.cryptowallet.exception.AssetNotFoundException;
 import com.spicep.cryptowallet.exception.CoinCapApiException;
 import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +28,13 @@ public class CoinCapService {
 
     private final CoinCapClient coinCapClient;
     private final CoinCapResolver coinCapResolver;
+    private final SpotPriceCache spotPriceCache;
+
+    @Value("${wallet.price-update.batch.page-size:2000}")
+    private int batchPageSize;
+
+    @Value("${wallet.price-update.batch.max-pages:3}")
+    private int batchMaxPages;
 
     /**
      * Validates that an asset exists on CoinCap and returns its current price
@@ -32,25 +46,8 @@ public class CoinCapService {
      * @throws CoinCapApiException    if API call fails
      */
     public BigDecimal validateAssetPrice(String symbol, BigDecimal providedPrice) {
-        try {
-            var coinCapId = coinCapResolver.resolveCoinCapId(symbol);
-            var response = coinCapClient.getAsset(coinCapId);
-
-            if (response == null || response.data() == null) {
-                throw AssetNotFoundException.invalidResponse(symbol);
-            }
-
-            var actualPrice = new BigDecimal(response.data().priceUsd());
-
-            log.debug("Validated asset {}: price={}", symbol, actualPrice);
-            return actualPrice;
-
-        } catch (FeignException.NotFound e) {
-            throw AssetNotFoundException.notFoundOnCoinCap(symbol);
-        } catch (FeignException e) {
-            log.error("Error calling CoinCap API for asset {}", symbol, e);
-            throw CoinCapApiException.fetchPriceFailed(symbol, e);
-        }
+        // A price cached within the staleness bound already proves the asset exists
+        return getCurrentPrice(symbol, false);
     }
 
     /**
@@ -76,7 +73,7 @@ public class CoinCapService {
             }
 
             var priceData = response.data().getFirst();
-            var price = new BigDecimal(priceData.priceUsd());
+            var price = priceData.priceUsd().decimalValue();
 
             log.debug("Historical price for {} on {}: {}", symbol, date, price);
             return price;
@@ -90,13 +87,124 @@ public class CoinCapService {
     }
 
     /**
-     * Get current price for an asset
+     * Get current price for an asset, served from the spot price cache when it is fresh enough
      *
      * @param symbol Asset symbol
      * @return Current price in USD
      */
     public BigDecimal getCurrentPrice(String symbol) {
-        return validateAssetPrice(symbol, null);
+        return getCurrentPrice(symbol, false);
+    }
+
+    /**
+     * Get current price for an asset
+     *
+     * @param symbol     Asset symbol
+     * @param forceFresh true to skip the spot price cache and always call CoinCap
+     * @return Current price in USD
+     * @throws AssetNotFoundException if symbol not found on CoinCap
+     * @throws CoinCapApiException    if API call fails
+     */
+    public BigDecimal getCurrentPrice(String symbol, boolean forceFresh) {
+        if (!forceFresh) {
+            var cached = spotPriceCache.getFresh(symbol);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        return fetchCurrentPrice(symbol);
+    }
+
+    /**
+     * Get current price for an asset, or the last known price (up to the spot price cache's max-stale age) when
+     * CoinCap cannot be called (circuit open, rate limit or bulkhead full, failed call). For read-only uses only:
+     * an old price must never be stored as the current price or in price history
+     *
+     * @param symbol Asset symbol
+     * @return Current or recent price in USD
+     * @throws AssetNotFoundException if symbol not found on CoinCap
+     * @throws CoinCapApiException    if API call fails and no recent price is known
+     */
+    public BigDecimal getCurrentPriceOrLastKnown(String symbol) {
+        try {
+            return getCurrentPrice(symbol, false);
+        } catch (CoinCapApiException e) {
+            var lastKnown = spotPriceCache.getLastKnown(symbol);
+            if (lastKnown.isEmpty()) {
+                throw e;
+            }
+            log.warn("Serving last known price for {} ({})", symbol, e.getMessage());
+            return lastKnown.get();
+        }
+    }
+
+    /**
+     * Get current prices for many assets at once by paging through the CoinCap assets listing.
+     * The listing is ordered by rank, so when a symbol is ambiguous the best ranked asset wins (same as the resolver).
+     * Symbols that are not found within the configured pages are simply missing from the result.
+     *
+     * @param symbols Asset symbols
+     * @return Current price in USD keyed by upper-cased symbol
+     */
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        var pending = symbols.stream().map(String::toUpperCase).collect(Collectors.toCollection(HashSet::new));
+        Map<String, BigDecimal> prices = new HashMap<>();
+
+        for (int page = 0; page < batchMaxPages && !pending.isEmpty(); page++) {
+            var offset = page * batchPageSize;
+            CoinCapAssetPrices listing;
+            try {
+                // Streamed listing, only symbol and price of each asset are decoded
+                listing = coinCapClient.getAssetPrices(batchPageSize, offset);
+            } catch (FeignException | CoinCapApiException e) {
+                log.warn("CoinCap assets listing failed at offset {}. Remaining symbols fall back to single lookups.",
+                        offset, e);
+                break;
+            }
+            if (listing == null) {
+                break;
+            }
+
+            for (var it = pending.iterator(); it.hasNext(); ) {
+                var symbol = it.next();
+                var price = listing.pricesBySymbol().get(symbol);
+                if (price != null) {
+                    prices.put(symbol, price.decimalValue());
+                    it.remove();
+                }
+            }
+
+            if (listing.assetCount() < batchPageSize) {
+                break;
+            }
+        }
+
+        spotPriceCache.putAll(prices);
+        log.debug("Batch price lookup resolved {} of {} symbols", prices.size(), symbols.size());
+        return prices;
+    }
+
+    private BigDecimal fetchCurrentPrice(String symbol) {
+        try {
+            var coinCapId = coinCapResolver.resolveCoinCapId(symbol);
+            var response = coinCapClient.getAsset(coinCapId);
+
+            if (response == null || response.data() == null || response.data().priceUsd() == null) {
+                throw AssetNotFoundException.invalidResponse(symbol);
+            }
+
+            var actualPrice = response.data().priceUsd().decimalValue();
+            spotPriceCache.put(symbol, actualPrice);
+
+            log.debug("Validated asset {}: price={}", symbol, actualPrice);
+            return actualPrice;
+
+        } catch (FeignException.NotFound e) {
+            throw AssetNotFoundException.notFoundOnCoinCap(symbol);
+        } catch (FeignException e) {
+            log.error("Error calling CoinCap API for asset {}", symbol, e);
+            throw CoinCapApiException.fetchPriceFailed(symbol, e);
+        }
     }
 
 }
@@ -0,0 +1,82 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.exception.AssetNotFoundException;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
+import com.spicep.cryptowallet.repository.HistoricalPriceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistoricalPriceService {
+
+    private final HistoricalPriceRepository historicalPriceRepository;
+    private final PriceRollupService priceRollupService;
+    private final CoinCapService coinCapService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${simulation.local-history.enable:false}")
+    private boolean localHistoryEnabled;
+
+    @Value("${simulation.local-history.min-daily-samples:24}")
+    private int minDailySamples;
+
+    /**
+     * Get the price of an asset on a past date, from local data when possible.
+     * Looks at prices already fetched from CoinCap, then at the daily rollup of our own price history,
+     * and only calls CoinCap on a miss. Prices of completed days fetched from CoinCap are stored, so each
+     * (symbol, date) is fetched at most once
+     *
+     * @param symbol Asset symbol
+     * @param date   Date to get price for
+     * @return Price in USD on that date
+     * @throws AssetNotFoundException if no price data found for that date
+     * @throws CoinCapApiException    if API call fails
+     */
+    public BigDecimal getHistoricalPrice(String symbol, LocalDate date) {
+        var symbolUpper = symbol.toUpperCase();
+
+        // Days are UTC days, as in CoinCap history and the daily rollup. The current day is still moving,
+        // so it always comes from CoinCap and is never stored
+        if (!localHistoryEnabled || !date.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+            return coinCapService.getHistoricalPrice(symbolUpper, date);
+        }
+
+        var stored = historicalPriceRepository.findBySymbolAndPriceDate(symbolUpper, date);
+        if (stored.isPresent()) {
+            countLookup("stored");
+            return stored.get().getPrice();
+        }
+
+        var recorded = priceRollupService.findDailyAveragePrice(symbolUpper, date, minDailySamples);
+        if (recorded.isPresent()) {
+            countLookup("rollup");
+            log.debug("Historical price for {} on {} served from daily rollup: {}", symbolUpper, date, recorded.get());
+            return recorded.get();
+        }
+
+        var price = coinCapService.getHistoricalPrice(symbolUpper, date);
+        countLookup("coincap");
+
+        try {
+            historicalPriceRepository.insertIfAbsent(symbolUpper, date, price);
+        } catch (DataAccessException e) {
+            log.warn("Failed to store historical price for {} on {}", symbolUpper, date, e);
+        }
+
+        return price;
+    }
+
+    private void countLookup(String source) {
+        meterRegistry.counter("historical.price.lookups", "source", source).increment();
+    }
+}
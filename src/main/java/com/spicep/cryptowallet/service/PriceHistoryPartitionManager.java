@@ -0,0 +1,117 @@
+package com.spicep.cryptowallet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the monthly partitions of price_history in shape: creates partitions ahead of time so rows never land in
+ * the default partition, and drops whole partitions older than the retention instead of deleting rows.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryPartitionManager {
+
+    private static final String PARTITION_PREFIX = "price_history_";
+    private static final Pattern PARTITION_NAME = Pattern.compile("price_history_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String LIST_PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'price_history'
+            """;
+
+    private static final String CREATE_PARTITION_SQL =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF price_history FOR VALUES FROM ('%s') TO ('%s')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${wallet.price-history.partitions.enable:false}")
+    private boolean enabled;
+
+    @Value("${wallet.price-history.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps every partition
+    @Value("${wallet.price-history.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${wallet.price-history.partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            maintainPartitions(YearMonth.now());
+        } catch (DataAccessException e) {
+            log.error("Failed to maintain price history partitions", e);
+        }
+    }
+
+    void maintainPartitions(YearMonth currentMonth) {
+        var existing = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class).stream()
+                .map(PARTITION_NAME::matcher)
+                .filter(Matcher::matches)
+                .map(m -> YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))))
+                .collect(Collectors.toSet());
+
+        createPartitions(existing, currentMonth);
+
+        if (retentionMonths > 0) {
+            dropExpiredPartitions(existing, currentMonth.minusMonths(retentionMonths));
+        }
+    }
+
+    private void createPartitions(Set<YearMonth> existing, YearMonth currentMonth) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            var month = currentMonth.plusMonths(i);
+            if (existing.contains(month)) {
+                continue;
+            }
+
+            jdbcTemplate.execute(CREATE_PARTITION_SQL.formatted(partitionName(month), month.atDay(1),
+                    month.plusMonths(1).atDay(1)));
+            log.info("Created price history partition {}", partitionName(month));
+        }
+    }
+
+    /**
+     * Drops every partition that only holds rows older than the cutoff month
+     */
+    private void dropExpiredPartitions(Set<YearMonth> existing, YearMonth cutoff) {
+        existing.stream()
+                .filter(month -> month.isBefore(cutoff))
+                .sorted()
+                .forEach(month -> {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS %s".formatted(partitionName(month)));
+                    log.info("Dropped expired price history partition {}", partitionName(month));
+                });
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(NAME_FORMAT);
+    }
+}
@@ -0,0 +1,113 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a price observation is worth a price history row. A row is skipped when the price did not move
+ * (at the stored 2 decimals precision) or moved less than the configured threshold since the last written row,
+ * unless the heartbeat interval has passed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryWriteFilter {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final MeterRegistry meterRegistry;
+
+    // Last written price per upper-cased symbol
+    private final Map<String, LastWrite> lastWritten = new ConcurrentHashMap<>();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+
+    @Value("${wallet.price-history.dedup.enable:false}")
+    private boolean enabled;
+
+    @Value("${wallet.price-history.dedup.min-change-percent:0}")
+    private BigDecimal minChangePercent;
+
+    @Value("${wallet.price-history.dedup.heartbeat:15m}")
+    private Duration heartbeat;
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("price.history.suppression.ratio", this, PriceHistoryWriteFilter::suppressionRatio);
+    }
+
+    /**
+     * @param priceHistory Candidate row
+     * @return true if the row should be written, false if it only repeats the last written price
+     */
+    public boolean shouldWrite(PriceHistory priceHistory) {
+        if (!enabled) {
+            return true;
+        }
+
+        var price = priceHistory.getPrice().setScale(2, RoundingMode.HALF_UP);
+        var createdAt = priceHistory.getCreatedAt();
+        var write = new AtomicBoolean();
+
+        lastWritten.compute(priceHistory.getSymbol().toUpperCase(), (symbol, previous) -> {
+            if (previous == null || isHeartbeatDue(previous, createdAt) || hasMoved(previous.price(), price)) {
+                write.set(true);
+                return new LastWrite(price, createdAt);
+            }
+            return previous;
+        });
+
+        if (write.get()) {
+            writtenCount.increment();
+            meterRegistry.counter("price.history.filter", "outcome", "written").increment();
+        } else {
+            suppressedCount.increment();
+            meterRegistry.counter("price.history.filter", "outcome", "suppressed").increment();
+            log.trace("Skipping unchanged price history for {} at {}", priceHistory.getSymbol(), price);
+        }
+        return write.get();
+    }
+
+    /**
+     * @return Share of observations that were not written, between 0 and 1
+     */
+    public double suppressionRatio() {
+        var suppressed = suppressedCount.sum();
+        var total = suppressed + writtenCount.sum();
+        return total == 0 ? 0 : (double) suppressed / total;
+    }
+
+    private boolean isHeartbeatDue(LastWrite previous, LocalDateTime createdAt) {
+        return !previous.writtenAt().plus(heartbeat).isAfter(createdAt);
+    }
+
+    private boolean hasMoved(BigDecimal previous, BigDecimal current) {
+        if (previous.compareTo(current) == 0) {
+            return false;
+        }
+        if (minChangePercent.signum() <= 0 || previous.signum() == 0) {
+            return true;
+        }
+
+        var changePercent = current.subtract(previous).abs()
+                .multiply(ONE_HUNDRED)
+                .divide(previous, 10, RoundingMode.HALF_UP);
+        return changePercent.compareTo(minChangePercent) >= 0;
+    }
+
+    private record LastWrite(BigDecimal price, LocalDateTime writtenAt) {}
+}
@@ -0,0 +1,176 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only writer for price history. Rows are buffered in memory and written with multi-row INSERTs,
+ * either when the buffer reaches the batch size, on the flush interval, when a caller flushes explicitly
+ * (end of a price update cycle) or on shutdown. The buffer is bounded: when it is full the oldest rows are dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceHistoryWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO price_history (id, symbol, price, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final PriceHistoryWriteFilter writeFilter;
+
+    private final ConcurrentLinkedDeque<PriceHistory> buffer = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicInteger appendedSinceFlush = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Value("${wallet.price-history.batch-size:500}")
+    private int batchSize;
+
+    // Bounds memory while the database is down, the oldest rows are dropped past it
+    @Value("${wallet.price-history.max-buffered:50000}")
+    private int maxBuffered;
+
+    /**
+     * Buffers a price history row, flushing right away once a full batch was appended since the last flush.
+     * Rows that only repeat the last written price are dropped by the write filter
+     * @param priceHistory Row to write
+     */
+    public void append(PriceHistory priceHistory) {
+        if (!writeFilter.shouldWrite(priceHistory)) {
+            return;
+        }
+
+        buffer.addLast(priceHistory);
+        buffered.incrementAndGet();
+        dropOverflow();
+
+        // Counting appends rather than buffered rows keeps a backlog (database down) from flushing on every append
+        if (appendedSinceFlush.incrementAndGet() == batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes every buffered row, one INSERT statement per batch. Rows of a batch that failed for a reason that may
+     * go away (connection, timeout) are put back in the buffer, rows the database rejected are dropped
+     * @return Number of rows written
+     */
+    @Scheduled(fixedDelayString = "${wallet.price-history.flush-interval:5000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            appendedSinceFlush.set(0);
+            var written = 0;
+            List<PriceHistory> batch;
+            while (!(batch = drain()).isEmpty()) {
+                try {
+                    insert(batch);
+                    written += batch.size();
+                } catch (DataAccessException e) {
+                    if (!isRetryable(e)) {
+                        log.error("Price history rows rejected by the database, dropping {} rows", batch.size(), e);
+                        countDropped("rejected", batch.size());
+                        continue;
+                    }
+                    log.error("Failed to write {} price history rows, keeping them for the next flush", batch.size(), e);
+                    requeue(batch);
+                    break;
+                }
+            }
+
+            if (written > 0) {
+                meterRegistry.counter("price.history.rows.written").increment(written);
+                log.debug("Flushed {} price history rows", written);
+            }
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Flushing {} buffered price history rows before shutdown", buffered.get());
+        flush();
+    }
+
+    private List<PriceHistory> drain() {
+        List<PriceHistory> batch = new ArrayList<>(Math.min(buffered.get(), batchSize));
+        PriceHistory next;
+        while (batch.size() < batchSize && (next = buffer.pollFirst()) != null) {
+            buffered.decrementAndGet();
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    // Back at the head of the buffer, so the rows stay in order and are the first ones dropped on overflow
+    private void requeue(List<PriceHistory> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            buffer.addFirst(batch.get(i));
+            buffered.incrementAndGet();
+        }
+        dropOverflow();
+    }
+
+    private void dropOverflow() {
+        var dropped = 0;
+        while (buffered.get() > maxBuffered && buffer.pollFirst() != null) {
+            buffered.decrementAndGet();
+            dropped++;
+        }
+
+        if (dropped > 0) {
+            log.debug("Price history buffer is full, dropped the {} oldest rows", dropped);
+            countDropped("overflow", dropped);
+        }
+    }
+
+    private void countDropped(String reason, int rows) {
+        meterRegistry.counter("price.history.rows.dropped", "reason", reason).increment(rows);
+    }
+
+    private static boolean isRetryable(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void insert(List<PriceHistory> batch) {
+        var sql = new StringBuilder(INSERT_SQL.length() + batch.size() * (ROW_PLACEHOLDER.length() + 2))
+                .append(INSERT_SQL);
+        var args = new Object[batch.size() * 4];
+
+        for (int i = 0; i < batch.size(); i++) {
+            var row = batch.get(i);
+            sql.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDER);
+            args[i * 4] = row.getId() != null ? row.getId() : UUID.randomUUID();
+            args[i * 4 + 1] = row.getSymbol();
+            args[i * 4 + 2] = row.getPrice();
+            args[i * 4 + 3] = Timestamp.valueOf(row.getCreatedAt());
+        }
+
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
@@ -0,0 +1,203 @@
+package com.spicep.cryptowallet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which symbols the price update refreshes in a cycle. Symbols are ranked by the value held, the number of
+ * holders and their recent volatility, then split into tiers: hot symbols are refreshed every cycle, warm and cold
+ * ones less often. A symbol the ranking does not know yet (just added to a wallet) is treated as hot.
+ * The number of CoinCap requests per cycle is capped by a budget derived from a per-minute limit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceRefreshPlanner {
+
+    public enum Tier {HOT, WARM, COLD}
+
+    // Each signal becomes a 0..1 percentile across symbols, so value, holders and volatility weigh the same
+    private static final String RANKING_SQL = """
+            WITH holdings AS (
+                SELECT symbol, COUNT(*) AS holders, SUM(market_value) AS holdings_value
+                FROM assets
+                GROUP BY symbol
+            ), volatility AS (
+                SELECT symbol, COALESCE(STDDEV_SAMP(close_price) / NULLIF(AVG(close_price), 0), 0) AS volatility
+                FROM price_history_hourly
+                WHERE bucket_start >= ?
+                GROUP BY symbol
+            )
+            SELECT h.symbol
+            FROM holdings h
+            LEFT JOIN volatility v ON v.symbol = h.symbol
+            ORDER BY (PERCENT_RANK() OVER (ORDER BY h.holdings_value)
+                    + PERCENT_RANK() OVER (ORDER BY h.holders)
+                    + PERCENT_RANK() OVER (ORDER BY COALESCE(v.volatility, 0))) DESC, h.symbol
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Start of the cycle that last refreshed each symbol
+    private final Map<String, Instant> lastRefreshed = new ConcurrentHashMap<>();
+
+    private volatile Ranking ranking = new Ranking(Map.of(), 0, 0);
+    private volatile Instant rankedAt = Instant.EPOCH;
+
+    @Value("${wallet.price-update.tiers.enable:false}")
+    private boolean enabled;
+
+    @Value("${wallet.price-update.tiers.hot-percent:20}")
+    private int hotPercent;
+
+    @Value("${wallet.price-update.tiers.warm-percent:30}")
+    private int warmPercent;
+
+    @Value("${wallet.price-update.tiers.warm-interval:5m}")
+    private Duration warmInterval;
+
+    @Value("${wallet.price-update.tiers.cold-interval:15m}")
+    private Duration coldInterval;
+
+    @Value("${wallet.price-update.tiers.ranking-refresh:10m}")
+    private Duration rankingRefresh;
+
+    @Value("${wallet.price-update.tiers.volatility-window:24h}")
+    private Duration volatilityWindow;
+
+    @Value("${wallet.price-update.budget.requests-per-minute:300}")
+    private int requestsPerMinute;
+
+    @Value("${wallet.price-update.interval:60000}")
+    private long cycleInterval;
+
+    /**
+     * Symbols to refresh in a cycle, in the order their refresh should use the budget
+     *
+     * @param symbols    Every held symbol
+     * @param cycleStart Start of the cycle
+     * @return Symbols due for a refresh (all symbols when tiers are disabled)
+     */
+    public List<String> dueSymbols(List<String> symbols, Instant cycleStart) {
+        if (!enabled) {
+            return symbols;
+        }
+
+        if (rankedAt.plus(rankingRefresh).isBefore(cycleStart)) {
+            rank(cycleStart);
+        }
+        lastRefreshed.keySet().retainAll(new HashSet<>(symbols));
+
+        var current = ranking;
+        var due = new ArrayList<String>();
+        Set<String> starving = new HashSet<>();
+        // Cycle starts drift by a few ms around the interval, so a symbol is due half a cycle early rather than
+        // missing every other cycle when the gap comes out just short
+        var tolerance = Duration.ofMillis(cycleInterval / 2);
+        for (var symbol : symbols) {
+            var last = lastRefreshed.get(symbol);
+            if (last == null) {
+                due.add(symbol);
+                continue;
+            }
+            var interval = interval(current.tierOf(symbol));
+            var dueAt = last.plus(interval).minus(tolerance);
+            if (!dueAt.isAfter(cycleStart)) {
+                due.add(symbol);
+            }
+            // Missed a whole turn, most likely for lack of budget
+            if (!dueAt.plus(interval).isAfter(cycleStart)) {
+                starving.add(symbol);
+            }
+        }
+        // Best ranked first, so the budget goes to the most important symbols, but starving ones go before the rest
+        due.sort(Comparator.comparing((String symbol) -> !starving.contains(symbol))
+                .thenComparingInt(current::positionOf));
+        return due;
+    }
+
+    /**
+     * Records that a symbol got a fresh price in the cycle started at cycleStart
+     */
+    public void markRefreshed(String symbol, Instant cycleStart) {
+        if (enabled) {
+            lastRefreshed.put(symbol, cycleStart);
+        }
+    }
+
+    /**
+     * @return CoinCap requests a cycle may make (unlimited when tiers are disabled)
+     */
+    public int requestBudget() {
+        if (!enabled) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(1, requestsPerMinute * cycleInterval / Duration.ofMinutes(1).toMillis());
+    }
+
+    Tier tierOf(String symbol) {
+        return ranking.tierOf(symbol);
+    }
+
+    private Duration interval(Tier tier) {
+        return switch (tier) {
+            // Hot symbols are due every cycle
+            case HOT -> Duration.ofMillis(cycleInterval);
+            case WARM -> warmInterval;
+            case COLD -> coldInterval;
+        };
+    }
+
+    private void rank(Instant now) {
+        List<String> ranked;
+        try {
+            var since = Timestamp.from(now.minus(volatilityWindow));
+            ranked = jdbcTemplate.queryForList(RANKING_SQL, String.class, since);
+        } catch (DataAccessException e) {
+            // Keep the previous tiers, the ranking is retried next cycle
+            log.warn("Failed to rank symbols for price refresh", e);
+            return;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (var symbol : ranked) {
+            positions.putIfAbsent(symbol, positions.size());
+        }
+        ranking = new Ranking(Map.copyOf(positions), (int) Math.ceil(ranked.size() * hotPercent / 100.0),
+                (int) Math.ceil(ranked.size() * warmPercent / 100.0));
+        rankedAt = now;
+        log.info("Ranked {} symbols for price refresh", ranked.size());
+    }
+
+    /**
+     * Symbols by position in the ranking, best first; the first hotCount positions are hot, the next warmCount warm
+     */
+    private record Ranking(Map<String, Integer> positions, int hotCount, int warmCount) {
+
+        // Unranked symbols were added since the last ranking, they go first
+        int positionOf(String symbol) {
+            return positions.getOrDefault(symbol, -1);
+        }
+
+        Tier tierOf(String symbol) {
+            var position = positionOf(symbol);
+            return position < hotCount ? Tier.HOT : position < hotCount + warmCount ? Tier.WARM : Tier.COLD;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.response.PriceCandle;
+import com.spicep.cryptowallet.enums.PriceResolution;
+import com.spicep.cryptowallet.exception.PriceHistoryValidationException;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Aggregates raw price history into hourly and daily open/high/low/close buckets and serves
+ * price history from the coarsest table that fits the requested range.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceRollupService {
+
+    private static final String WATERMARK = "price_history";
+
+    private static final String LOCK_WATERMARK_SQL =
+            "SELECT processed_until FROM price_rollup_watermarks WHERE name = ? FOR UPDATE";
+
+    private static final String UPDATE_WATERMARK_SQL =
+            "UPDATE price_rollup_watermarks SET processed_until = ? WHERE name = ?";
+
+    // Rows are picked up by the time the database inserted them, not by created_at: the history writer re-queues
+    // failed batches, so a row can be written long after its created_at
+    private static final String ROLLUP_UPPER_BOUND_SQL = "SELECT now() - make_interval(secs => ?)";
+
+    // Every hour that received rows since the last run is recomputed from all of its raw rows, so late rows land in
+    // their bucket and rerunning a window never counts a row twice
+    private static final String ROLLUP_HOURLY_SQL = """
+            WITH touched AS (
+                SELECT DISTINCT symbol, date_trunc('hour', created_at) AS bucket_start
+                FROM price_history
+                WHERE inserted_at > ? AND inserted_at <= ?
+            )
+            INSERT INTO price_history_hourly
+                (symbol, bucket_start, open_price, high_price, low_price, close_price, price_sum, sample_count)
+            SELECT t.symbol,
+                   t.bucket_start,
+                   (array_agg(p.price ORDER BY p.created_at))[1],
+                   MAX(p.price),
+                   MIN(p.price),
+                   (array_agg(p.price ORDER BY p.created_at DESC))[1],
+                   SUM(p.price),
+                   COUNT(*)
+            FROM touched t
+            JOIN price_history p ON p.symbol = t.symbol
+                AND p.created_at >= t.bucket_start AND p.created_at < t.bucket_start + INTERVAL '1 hour'
+            GROUP BY t.symbol, t.bucket_start
+            ON CONFLICT (symbol, bucket_start) DO UPDATE SET
+                open_price = EXCLUDED.open_price,
+                high_price = EXCLUDED.high_price,
+                low_price = EXCLUDED.low_price,
+                close_price = EXCLUDED.close_price,
+                price_sum = EXCLUDED.price_sum,
+                sample_count = EXCLUDED.sample_count
+            """;
+
+    // Daily buckets are UTC days, the days CoinCap history and historical price lookups use. created_at is local
+    // time of the application zone (the first and last parameters), so each touched UTC day is recomputed from its
+    // raw rows: local hourly buckets do not line up with UTC days in every zone
+    private static final String ROLLUP_DAILY_SQL = """
+            WITH touched AS (
+                SELECT DISTINCT symbol, date_trunc('day', created_at AT TIME ZONE ? AT TIME ZONE 'UTC') AS bucket_start
+                FROM price_history
+                WHERE inserted_at > ? AND inserted_at <= ?
+            )
+            INSERT INTO price_history_daily
+                (symbol, bucket_start, open_price, high_price, low_price, close_price, price_sum, sample_count)
+            SELECT t.symbol,
+                   t.bucket_start,
+                   (array_agg(p.price ORDER BY p.created_at))[1],
+                   MAX(p.price),
+                   MIN(p.price),
+                   (array_agg(p.price ORDER BY p.created_at DESC))[1],
+                   SUM(p.price),
+                   COUNT(*)
+            FROM touched t
+            JOIN price_history p ON p.symbol = t.symbol
+                AND p.created_at >= t.bucket_start AT TIME ZONE 'UTC' AT TIME ZONE ?
+                AND p.created_at < (t.bucket_start + INTERVAL '1 day') AT TIME ZONE 'UTC' AT TIME ZONE ?
+            GROUP BY t.symbol, t.bucket_start
+            ON CONFLICT (symbol, bucket_start) DO UPDATE SET
+                open_price = EXCLUDED.open_price,
+                high_price = EXCLUDED.high_price,
+                low_price = EXCLUDED.low_price,
+                close_price = EXCLUDED.close_price,
+                price_sum = EXCLUDED.price_sum,
+                sample_count = EXCLUDED.sample_count
+            """;
+
+    private static final String CANDLES_SQL = """
+            SELECT bucket_start, open_price, high_price, low_price, close_price, sample_count
+            FROM %s
+            WHERE symbol = ? AND bucket_start >= ? AND bucket_start <= ?
+            ORDER BY bucket_start
+            """;
+
+    private static final String DAILY_AVERAGE_SQL = """
+            SELECT price_sum / sample_count
+            FROM price_history_daily
+            WHERE symbol = ? AND bucket_start = ? AND sample_count >= ?
+            """;
+
+    private static final RowMapper<PriceCandle> CANDLE_MAPPER =
+            (rs, rowNum) -> toCandle(rs, rs.getTimestamp("bucket_start").toLocalDateTime());
+
+    // Daily buckets start at UTC midnight, they are returned in the application zone like the other resolutions
+    private static final RowMapper<PriceCandle> DAILY_CANDLE_MAPPER =
+            (rs, rowNum) -> toCandle(rs, fromUtc(rs.getTimestamp("bucket_start").toLocalDateTime()));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceHistoryRepository priceHistoryRepository;
+
+    @Value("${wallet.price-history.rollup.enable:false}")
+    private boolean rollupEnabled;
+
+    // Rows inserted more recently than this may belong to transactions that are not committed yet
+    @Value("${wallet.price-history.rollup.lag:5m}")
+    private Duration lag;
+
+    /**
+     * Folds the raw rows inserted since the last run into the hourly and daily tables.
+     * The watermark row is locked for the whole run, so runs on other instances wait for each other
+     */
+    @Scheduled(fixedDelayString = "${wallet.price-history.rollup.interval:300000}")
+    @Transactional
+    public void rollup() {
+        if (!rollupEnabled) {
+            return;
+        }
+
+        var from = jdbcTemplate.queryForObject(LOCK_WATERMARK_SQL, Timestamp.class, WATERMARK);
+        var to = jdbcTemplate.queryForObject(ROLLUP_UPPER_BOUND_SQL, Timestamp.class, lag.toSeconds());
+
+        if (from == null || to == null || !to.after(from)) {
+            return;
+        }
+
+        var hourly = jdbcTemplate.update(ROLLUP_HOURLY_SQL, from, to);
+        var zone = ZoneId.systemDefault().getId();
+        var daily = jdbcTemplate.update(ROLLUP_DAILY_SQL, zone, from, to, zone, zone);
+        jdbcTemplate.update(UPDATE_WATERMARK_SQL, to, WATERMARK);
+
+        log.info("Rolled up price history from {} to {}: {} hourly and {} daily buckets", from, to, hourly, daily);
+    }
+
+    /**
+     * Price history of a symbol, read from the coarsest table that fits the range.
+     * All times are local time of the application zone; daily candles cover UTC days, so they start at UTC midnight
+     *
+     * @param symbol     Asset symbol
+     * @param from       Range start in the application zone (inclusive, widened to the start of its bucket)
+     * @param to         Range end in the application zone (inclusive)
+     * @param resolution Resolution to read at, or null to pick it from the range
+     * @return One candle per bucket, oldest first. Raw observations come back as single sample candles
+     */
+    @Transactional(readOnly = true)
+    public List<PriceCandle> getPriceHistory(String symbol, LocalDateTime from, LocalDateTime to,
+                                             PriceResolution resolution) {
+        if (!from.isBefore(to)) {
+            throw PriceHistoryValidationException.invalidRange(from, to);
+        }
+
+        var symbolUpper = symbol.toUpperCase();
+        var effectiveResolution = resolution != null ? resolution : PriceResolution.forRange(Duration.between(from, to));
+
+        return switch (effectiveResolution) {
+            case DAY -> readCandles("price_history_daily", DAILY_CANDLE_MAPPER, symbolUpper,
+                    toUtc(from).truncatedTo(ChronoUnit.DAYS), toUtc(to));
+            case HOUR -> readCandles("price_history_hourly", CANDLE_MAPPER, symbolUpper,
+                    from.truncatedTo(ChronoUnit.HOURS), to);
+            case RAW -> priceHistoryRepository.findBySymbolAndCreatedAtBetweenOrderByCreatedAt(symbolUpper, from, to)
+                    .stream()
+                    .map(p -> new PriceCandle(p.getCreatedAt(), p.getPrice(), p.getPrice(), p.getPrice(),
+                            p.getPrice(), 1))
+                    .toList();
+        };
+    }
+
+    /**
+     * Average recorded price of a symbol on a UTC day, if the daily rollup has enough samples to cover that day
+     *
+     * @param symbol     Asset symbol
+     * @param date       UTC day to get the price for
+     * @param minSamples Minimum number of recorded prices for the day to count as covered
+     * @return Average price of the day, or empty if the day is not covered
+     */
+    public Optional<BigDecimal> findDailyAveragePrice(String symbol, LocalDate date, int minSamples) {
+        return jdbcTemplate.query(DAILY_AVERAGE_SQL, (rs, rowNum) -> rs.getBigDecimal(1), symbol.toUpperCase(),
+                Timestamp.valueOf(date.atStartOfDay()), minSamples).stream().findFirst();
+    }
+
+    private List<PriceCandle> readCandles(String table, RowMapper<PriceCandle> mapper, String symbol,
+                                          LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(CANDLES_SQL.formatted(table), mapper, symbol, Timestamp.valueOf(from),
+                Timestamp.valueOf(to));
+    }
+
+    private static PriceCandle toCandle(ResultSet rs, LocalDateTime bucketStart) throws SQLException {
+        return new PriceCandle(
+                bucketStart,
+                rs.getBigDecimal("open_price"),
+                rs.getBigDecimal("high_price"),
+                rs.getBigDecimal("low_price"),
+                rs.getBigDecimal("close_price"),
+                rs.getInt("sample_count"));
+    }
+
+    private static LocalDateTime toUtc(LocalDateTime local) {
+        return local.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    private static LocalDateTime fromUtc(LocalDateTime utc) {
+        return utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
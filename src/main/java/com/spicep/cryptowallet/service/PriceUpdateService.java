@@ -1,40 +1,139 @@
 package com.spicep.cryptowallet.service;
 
+import com.spicep.cryptowallet.client.CoinCapCaller;
 import com.spicep.cryptowallet.entity.PriceHistory;
 import com.spicep.cryptowallet.repository.AssetRepository;
-import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class PriceUpdateService {
 
+    static final String LEASE_NAME = "price-update";
+
     private final AssetRepository assetRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final WalletRepository walletRepository;
+    private final PriceHistoryWriter priceHistoryWriter;
     private final CoinCapService coinCapService;
     private final Executor priceUpdateExecutor;
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLease schedulerLease;
+    private final PriceRefreshPlanner refreshPlanner;
+
+    // Time spent on database writes during the current cycle, summed over all symbols
+    private final LongAdder cycleDbNanos = new LongAdder();
+
+    // CoinCap requests the current cycle may still make
+    private final AtomicInteger cycleRequests = new AtomicInteger(Integer.MAX_VALUE);
+
+    // Symbols the previous cycle could not finish before its deadline, refreshed first in the next one
+    private volatile List<String> carryOver = List.of();
+
+    private volatile long lastCycleStartNanos;
 
     @Value("${wallet.price-update.enable:true}")
     private boolean priceUpdateEnabled;
 
+    @Value("${wallet.price-update.batch.enable:false}")
+    private boolean batchEnabled;
+
+    @Value("${wallet.price-update.bulk-write.enable:false}")
+    private boolean bulkWriteEnabled;
+
+    @Value("${wallet.price-update.batch.max-pages:3}")
+    private int batchMaxPages;
+
+    @Value("${wallet.price-update.interval:60000}")
+    private long cycleInterval;
+
+    @Value("${wallet.price-update.deadline:45s}")
+    private Duration cycleDeadline;
+
+    @Value("${wallet.price-update.symbol-timeout:15s}")
+    private Duration symbolTimeout;
+
+    // Defaults to the scheduler's share of the CoinCap rate limit, more calls in flight would only wait for a permit
+    @Value("${wallet.price-update.max-concurrency:"
+            + "${resilience4j.ratelimiter.instances.coincap-scheduler.limit-for-period:5}}")
+    private int maxConcurrency;
+
+    // Symbol updates in flight. Held here instead of in the executor so waiting for one can stop at the deadline
+    private Semaphore updateSlots;
+
+    @PostConstruct
+    void initUpdateSlots() {
+        updateSlots = new Semaphore(maxConcurrency);
+    }
+
     /**
-     * Scheduled task that updates prices for all assets in the system
+     * Scheduled task that updates prices for the assets whose symbol is due for a refresh. Cycles start at a fixed
+     * rate and stop waiting for symbols at their deadline, so a slow CoinCap call never pushes later cycles back.
+     * The scheduler never runs two cycles at once, but after a cycle overran by more than an interval it fires the
+     * missed ones back to back; those are skipped
      */
-    @Scheduled(fixedDelayString = "${wallet.price-update.interval:60000}")
+    @Scheduled(fixedRateString = "${wallet.price-update.interval:60000}")
     public void updatePrices() {
         if (!priceUpdateEnabled) {
             return;
         }
 
+        var now = System.nanoTime();
+        var interval = TimeUnit.MILLISECONDS.toNanos(cycleInterval);
+        if (lastCycleStartNanos != 0) {
+            var sinceLast = now - lastCycleStartNanos;
+            if (sinceLast < interval / 2) {
+                log.warn("Skipping a missed price update cycle, the previous one started {} ms ago",
+                        TimeUnit.NANOSECONDS.toMillis(sinceLast));
+                return;
+            }
+            // How late this cycle starts compared to one interval after the previous one
+            meterRegistry.timer("price.update.cycle.lag")
+                    .record(Math.max(0, sinceLast - interval), TimeUnit.NANOSECONDS);
+        }
+        lastCycleStartNanos = now;
+
+        // One instance refreshes every symbol, the others skip, so CoinCap traffic does not grow with replicas
+        if (!schedulerLease.tryAcquire(LEASE_NAME, Duration.ofMillis(cycleInterval))) {
+            log.debug("Price update lease is held by another instance, skipping");
+            return;
+        }
+        runCycle();
+        meterRegistry.timer("price.update.cycle.duration").record(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+    }
+
+    private void runCycle() {
         log.info("Starting scheduled price update");
 
         var uniqueSymbols = assetRepository.findDistinctSymbols();
@@ -44,38 +143,237 @@ public class PriceUpdateService {
             return;
         }
 
-        log.info("Found {} unique symbols to update", uniqueSymbols.size());
+        var cycleStart = Instant.now();
+        var deadline = cycleStart.plus(cycleDeadline);
 
-        List<CompletableFuture<Void>> futures = uniqueSymbols.stream()
-                .map(symbol -> CompletableFuture.runAsync(() -> {
-                    try {
-                        updatePriceForSymbol(symbol);
-                    } catch (Exception e) {
-                        log.error("Failed to update price for symbol: {}", symbol, e);
-                    }
-                }, priceUpdateExecutor))
+        // Carried over symbols go ahead of the ones the planner picked, as long as they are still held
+        var held = new HashSet<>(uniqueSymbols);
+        var carriedOver = carryOver.stream().filter(held::contains).toList();
+        var dueSymbols = Stream.concat(carriedOver.stream(),
+                        refreshPlanner.dueSymbols(uniqueSymbols, cycleStart).stream()
+                                .filter(symbol -> !carriedOver.contains(symbol)))
                 .toList();
+        carryOver = List.of();
+        if (dueSymbols.isEmpty()) {
+            log.debug("No symbols due for a price refresh");
+            return;
+        }
 
-        // Blocks moving forward until all tasks are finished
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        log.info("Completed price update for {} symbols", uniqueSymbols.size());
+        log.info("Found {} unique symbols, {} due for a refresh", uniqueSymbols.size(), dueSymbols.size());
+        cycleDbNanos.reset();
+        cycleRequests.set(refreshPlanner.requestBudget());
+
+        // One paged listing call covers most symbols, the rest fall back to single asset lookups.
+        // Listing pages count against the budget at their maximum, the pages actually read are not known here
+        Map<String, BigDecimal> batchPrices = batchEnabled
+                ? CoinCapCaller.asScheduler(() -> coinCapService.getCurrentPrices(dueSymbols))
+                : Map.of();
+        if (batchEnabled) {
+            cycleRequests.addAndGet(-batchMaxPages);
+            log.info("Batch refresh returned prices for {} of {} symbols", batchPrices.size(), dueSymbols.size());
+        }
+
+        // Symbols the executor rejected or whose update failed get one more try once the first pass is done,
+        // rejected again they run on this thread. Symbols not done by the deadline are carried to the next cycle
+        Set<String> unfinished = ConcurrentHashMap.newKeySet();
+        var failed = updateSymbols(dueSymbols, batchPrices, cycleStart, deadline, unfinished, false);
+        if (!failed.isEmpty()) {
+            log.warn("Retrying {} symbols that were rejected or failed", failed.size());
+            countSymbols("retried", failed.size());
+            var dropped = updateSymbols(failed, batchPrices, cycleStart, deadline, unfinished, true);
+            if (!dropped.isEmpty()) {
+                countSymbols("dropped", dropped.size());
+                log.error("Price update dropped {} symbols after retry: {}", dropped.size(), dropped);
+            }
+        }
+        if (!unfinished.isEmpty()) {
+            carryOver = dueSymbols.stream().filter(unfinished::contains).toList();
+            countSymbols("carried-over", carryOver.size());
+            log.warn("Price update reached its deadline, carrying {} symbols over to the next cycle",
+                    carryOver.size());
+        }
+
+        // History rows of the whole cycle go out in one round trip
+        var flushStart = System.nanoTime();
+        priceHistoryWriter.flush();
+        cycleDbNanos.add(System.nanoTime() - flushStart);
+
+        meterRegistry.timer("price.update.db.time", "mode", bulkWriteEnabled ? "bulk" : "entity")
+                .record(cycleDbNanos.sum(), TimeUnit.NANOSECONDS);
+        log.info("Completed price update for {} symbols ({} ms in database writes)", dueSymbols.size(),
+                TimeUnit.NANOSECONDS.toMillis(cycleDbNanos.sum()));
     }
 
     /**
-     * Updates price for a symbol: fetches from CoinCap, saves history, updates assets
+     * Runs the update of every symbol on the price update executor and waits for them until the deadline. A symbol
+     * without a batch price needs a CoinCap request of its own and is deferred to a later cycle once the budget is
+     * spent. A symbol that gets no free slot or does not start before the deadline, or runs longer than the symbol
+     * timeout, is unfinished
+     *
+     * @param unfinished        Collects the symbols that did not finish by the deadline or timed out
+     * @param runRejectedInline true to run a symbol the executor rejects on the calling thread instead of returning it
+     * @return Symbols that were rejected by the executor or failed to update
      */
-    public void updatePriceForSymbol(String symbol) {
+    private List<String> updateSymbols(List<String> symbols, Map<String, BigDecimal> batchPrices, Instant cycleStart,
+                                       Instant deadline, Set<String> unfinished, boolean runRejectedInline) {
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
 
-        var currentPrice = coinCapService.getCurrentPrice(symbol);
+        for (var symbol : symbols) {
+            if (!acquireSlot(deadline)) {
+                unfinished.add(symbol);
+                continue;
+            }
 
-        var priceHistory = PriceHistory.create(symbol, currentPrice);
-        priceHistoryRepository.save(priceHistory);
+            // Completed when the update ends, or exceptionally when it is abandoned (timeout or deadline)
+            var result = new CompletableFuture<Void>();
+            var task = new FutureTask<Void>(() -> {
+                // Waited in the executor queue past the deadline
+                if (!Instant.now().isBefore(deadline)) {
+                    unfinished.add(symbol);
+                    return;
+                }
+                // The timeout counts from the start of the update, not from the submission
+                result.orTimeout(symbolTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                updateSymbol(symbol, batchPrices, cycleStart, result, failed);
+            }, null) {
+                @Override
+                protected void done() {
+                    // Runs once whether the task ended, was cancelled before it started or was interrupted
+                    result.complete(null);
+                    updateSlots.release();
+                }
+            };
+            // An abandoned update is interrupted, so a hung CoinCap call gives up its thread
+            result.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    task.cancel(true);
+                }
+            });
+
+            try {
+                priceUpdateExecutor.execute(task);
+                futures.put(symbol, result);
+            } catch (RejectedExecutionException e) {
+                log.warn("Price update executor rejected symbol {}", symbol);
+                countSymbols("rejected", 1);
+                if (runRejectedInline) {
+                    task.run();
+                    // A timeout during the inline run interrupts this thread, that must not leak into the cycle
+                    Thread.interrupted();
+                    futures.put(symbol, result);
+                } else {
+                    task.cancel(false);
+                    failed.add(symbol);
+                }
+            }
+        }
 
-        var assets = assetRepository.findBySymbolIgnoreCase(symbol);
+        awaitUntil(futures, deadline, unfinished);
+        failed.removeAll(unfinished);
+        return List.copyOf(failed);
+    }
+
+    /**
+     * Fetches the price of a symbol unless the batch had it, then writes it, unless the update was abandoned in the
+     * meantime: a later cycle owns the symbol then and an older price must not overwrite its newer one
+     */
+    private void updateSymbol(String symbol, Map<String, BigDecimal> batchPrices, Instant cycleStart,
+                              CompletableFuture<Void> result, Set<String> failed) {
+        try {
+            var price = batchPrices.get(symbol.toUpperCase());
+            if (price == null) {
+                if (cycleRequests.getAndDecrement() <= 0) {
+                    countSymbols("deferred", 1);
+                    return;
+                }
+                // Bypasses and refreshes the spot price cache
+                price = CoinCapCaller.asScheduler(() -> coinCapService.getCurrentPrice(symbol, true));
+            }
+            if (result.isDone()) {
+                return;
+            }
+            updatePriceForSymbol(symbol, price, cycleStart);
+            refreshPlanner.markRefreshed(symbol, cycleStart);
+        } catch (Exception e) {
+            if (result.isDone()) {
+                // Interrupted because the update was abandoned, already counted as unfinished
+                return;
+            }
+            log.error("Failed to update price for symbol: {}", symbol, e);
+            countSymbols("failed", 1);
+            failed.add(symbol);
+        }
+    }
 
-        assets.forEach(asset -> asset.updatePrice(currentPrice));
-        assetRepository.saveAll(assets);
+    /**
+     * Waits for a free update slot, at most until the deadline
+     */
+    private boolean acquireSlot(Instant deadline) {
+        var remaining = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+        try {
+            return updateSlots.tryAcquire(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the symbol updates until the deadline. Updates that timed out or are still running then are
+     * abandoned (interrupted, and never write their price) and marked unfinished
+     */
+    private void awaitUntil(Map<String, CompletableFuture<Void>> futures, Instant deadline, Set<String> unfinished) {
+        var remaining = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Deadline reached, or a symbol timed out; both are sorted out per symbol below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        futures.forEach((symbol, future) -> {
+            if (future.isCompletedExceptionally()) {
+                log.warn("Price update for {} timed out after {}", symbol, symbolTimeout);
+                countSymbols("timed-out", 1);
+                unfinished.add(symbol);
+            } else if (!future.isDone()) {
+                future.completeExceptionally(new CancellationException("Price update deadline reached"));
+                unfinished.add(symbol);
+            }
+        });
+    }
+
+    private void countSymbols(String outcome, int count) {
+        meterRegistry.counter("price.update.symbols", "outcome", outcome).increment(count);
+    }
+
+    /**
+     * Updates price for a symbol with an already fetched price: buffers history, updates the assets not written
+     * since the cycle started (by a later cycle, or an asset edit with a fresher price)
+     */
+    public void updatePriceForSymbol(String symbol, BigDecimal currentPrice, Instant cycleStart) {
+        priceHistoryWriter.append(PriceHistory.create(symbol, currentPrice));
+
+        var start = System.nanoTime();
+        var notUpdatedSince = LocalDateTime.ofInstant(cycleStart, ZoneId.systemDefault());
+        int affected;
+        if (bulkWriteEnabled) {
+            // Single set-based UPDATE instead of loading and dirty checking every asset, wallet totals move with it
+            affected = assetRepository.updatePriceBySymbol(symbol, currentPrice, LocalDateTime.now(), notUpdatedSince);
+        } else {
+            var assets = assetRepository.findBySymbolIgnoreCase(symbol).stream()
+                    .filter(asset -> asset.getUpdatedAt() == null || asset.getUpdatedAt().isBefore(notUpdatedSince))
+                    .toList();
+            assets.forEach(asset -> asset.updatePrice(currentPrice));
+            assetRepository.saveAll(assets);
+            walletRepository.refreshTotalValues(symbol);
+            affected = assets.size();
+        }
 
-        log.info("Updated price for {} - ${} (affected {} assets)", symbol, currentPrice, assets.size());
+        cycleDbNanos.add(System.nanoTime() - start);
+        log.info("Updated price for {} - ${} (affected {} assets)", symbol, currentPrice, affected);
     }
 }
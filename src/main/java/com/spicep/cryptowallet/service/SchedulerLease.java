@@ -0,0 +1,115 @@
+package com.spicep.cryptowallet.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elects one instance to run a scheduled job through a lease row in scheduler_leases. The holder renews the lease
+ * every time it runs the job; when it stops renewing (crash, shutdown, lost database) the lease expires and the first
+ * instance to try after that takes over. Expiry is checked against the database clock, so instance clocks don't matter.
+ * The lease always outlives a few runs of its job: one that expired between runs would be taken by every instance in
+ * turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLease {
+
+    // Takes a free or expired lease, or renews our own; any other holder makes it a no-op (0 rows)
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO scheduler_leases (name, owner, expires_at)
+            VALUES (?, ?, now() + ? * INTERVAL '1 millisecond')
+            ON CONFLICT (name) DO UPDATE
+            SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at
+            WHERE scheduler_leases.owner = EXCLUDED.owner OR scheduler_leases.expires_at < now()
+            """;
+
+    private static final String RELEASE_SQL =
+            "UPDATE scheduler_leases SET expires_at = now() WHERE name = ? AND owner = ?";
+
+    // Minimum lease lifetime in runs of the job, so a late run or a missed renewal does not hand the lease over
+    private static final int MIN_TTL_RUNS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // pid@host plus a random part, so a restarted instance never mistakes the lease of its previous run for its own
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    private final Map<String, Boolean> held = new ConcurrentHashMap<>();
+
+    @Value("${wallet.scheduler-lease.enable:false}")
+    private boolean enabled;
+
+    // Raised to MIN_TTL_RUNS runs of the job when its interval is longer
+    @Value("${wallet.scheduler-lease.ttl:3m}")
+    private Duration ttl;
+
+    /**
+     * Takes or renews the lease of a job
+     *
+     * @param name        Job name
+     * @param runInterval How often the job runs, and so how often the lease is renewed
+     * @return true if this instance holds the lease and should run the job (always true when leases are disabled)
+     */
+    public boolean tryAcquire(String name, Duration runInterval) {
+        if (!enabled) {
+            return true;
+        }
+
+        var leaseTtl = ttlFor(runInterval);
+        boolean acquired;
+        try {
+            acquired = jdbcTemplate.update(ACQUIRE_SQL, name, owner, leaseTtl.toMillis()) == 1;
+        } catch (DataAccessException e) {
+            // Without the database nobody can tell who holds the lease, skipping is the safe side
+            log.warn("Could not acquire lease {}, skipping this run", name, e);
+            acquired = false;
+        }
+
+        var previous = held.put(name, acquired);
+        if (previous == null || previous != acquired) {
+            log.info("Lease {} {} by {} (ttl {})", name, acquired ? "acquired" : "held elsewhere, not taken", owner,
+                    leaseTtl);
+        }
+        return acquired;
+    }
+
+    /**
+     * Gives up every lease held by this instance, so another instance takes over on its next run instead of waiting
+     * for the lease to expire
+     */
+    @PreDestroy
+    public void releaseAll() {
+        if (!enabled) {
+            return;
+        }
+
+        held.forEach((name, acquired) -> {
+            if (acquired) {
+                try {
+                    jdbcTemplate.update(RELEASE_SQL, name, owner);
+                    log.info("Lease {} released by {}", name, owner);
+                } catch (DataAccessException e) {
+                    log.warn("Could not release lease {}, it expires on its own", name, e);
+                }
+            }
+        });
+        held.clear();
+    }
+
+    Duration ttlFor(Duration runInterval) {
+        var minimum = runInterval.multipliedBy(MIN_TTL_RUNS);
+        return ttl.compareTo(minimum) >= 0 ? ttl : minimum;
+    }
+}
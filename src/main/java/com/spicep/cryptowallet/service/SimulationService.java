@@ -9,22 +9,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 @Slf4j
 public class SimulationService {
 
     private final CoinCapService coinCapService;
+    private final HistoricalPriceService historicalPriceService;
+    private final Executor simulationExecutor;
 
     @Value("${simulation.use-market-price.enable:false}")
     private boolean useMarketPrice;
@@ -43,9 +50,6 @@ public class SimulationService {
             throw SimulationValidationException.futureDateNotAllowed();
         }
 
-        Map<String, AssetPerformance> performances = new HashMap<>();
-        var totalCurrentValue = BigDecimal.ZERO;
-
         for (SimulatePortfolioAssetInput asset : request.assets()) {
             // If useMarketPrice=true, user should not provide value
             if (useMarketPrice && asset.value() != null) {
@@ -56,9 +60,28 @@ public class SimulationService {
             if (!useMarketPrice && asset.value() == null) {
                 throw SimulationValidationException.valueMissingWhenNotUsingMarketPrice();
             }
+        }
+
+        // Every distinct symbol is fetched once, and all fetches run at the same time
+        var symbols = request.assets().stream()
+                .map(asset -> asset.symbol().toUpperCase())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        var historicalPrices = useMarketPrice
+                ? fetchPrices(symbols, symbol -> historicalPriceService.getHistoricalPrice(symbol, request.date()))
+                : Map.<String, CompletableFuture<BigDecimal>>of();
+        // Nothing is stored, so a recent price will do while CoinCap is unavailable
+        var currentPrices = fetchPrices(symbols, coinCapService::getCurrentPriceOrLastKnown);
+
+        Map<String, AssetPerformance> performances = new HashMap<>();
+        var totalCurrentValue = BigDecimal.ZERO;
+
+        for (SimulatePortfolioAssetInput asset : request.assets()) {
+            var symbolUpper = asset.symbol().toUpperCase();
+            var historicalPrice = useMarketPrice ? join(historicalPrices.get(symbolUpper)) : null;
 
-            var assetPerformance = calculateAssetPerformance(asset.symbol(), asset.quantity(),
-                    asset.value(), request.date()
+            var assetPerformance = calculateAssetPerformance(asset.quantity(), asset.value(), historicalPrice,
+                    join(currentPrices.get(symbolUpper))
             );
 
             performances.put(asset.symbol(), assetPerformance);
@@ -87,33 +110,21 @@ public class SimulationService {
     /**
      * Calculate individual asset performance based on configuration and user input
      *
-     * @param symbol            Symbol of the asset (e.g. "btc")
      * @param quantity          Quantity of the asset the user bought
      * @param userProvidedValue The total value the user paid (only used when useMarketPrice=false)
-     * @param targetDate        Date provided by the user
+     * @param historicalPrice   Price on the date provided by the user (only used when useMarketPrice=true)
+     * @param currentPrice      Today's market price
      * @return AssetPerformance metrics showing current value and percentage change
      */
     private AssetPerformance calculateAssetPerformance(
-            String symbol,
             BigDecimal quantity,
             BigDecimal userProvidedValue,
-            LocalDate targetDate) {
-
-        var symbolUpper = symbol.toUpperCase();
-
-        // Determine baseline original value based on configuration
-        BigDecimal originalValue;
-        if (useMarketPrice) {
-            // Use CoinCap historical price for the target date as baseline
-            var historicalPrice = coinCapService.getHistoricalPrice(symbolUpper, targetDate);
-            originalValue = historicalPrice.multiply(quantity);
-        } else {
-            // Use user-provided value
-            originalValue = userProvidedValue;
-        }
+            BigDecimal historicalPrice,
+            BigDecimal currentPrice) {
 
-        // Current value is always based on today's market price
-        var currentPrice = coinCapService.getCurrentPrice(symbolUpper);
+        // Determine baseline original value based on configuration: the historical price for the target date,
+        // or the user-provided value
+        var originalValue = useMarketPrice ? historicalPrice.multiply(quantity) : userProvidedValue;
 
         // Calculate current value: quantity * currentPrice
         var currentValue = currentPrice.multiply(quantity);
@@ -128,4 +139,27 @@ public class SimulationService {
         );
     }
 
+    private Map<String, CompletableFuture<BigDecimal>> fetchPrices(Set<String> symbols,
+                                                                   Function<String, BigDecimal> fetch) {
+        Map<String, CompletableFuture<BigDecimal>> prices = new HashMap<>();
+        for (String symbol : symbols) {
+            prices.put(symbol, CompletableFuture.supplyAsync(() -> fetch.apply(symbol), simulationExecutor));
+        }
+        return prices;
+    }
+
+    /**
+     * Waits for a fetch and rethrows its failure as is, so API errors keep their own error response
+     */
+    private static BigDecimal join(CompletableFuture<BigDecimal> price) {
+        try {
+            return price.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
 }
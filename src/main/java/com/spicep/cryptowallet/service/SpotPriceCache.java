@@ -0,0 +1,99 @@
+package com.spicep.cryptowallet.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache of current prices, shared by the simulator, wallet writes and the price update scheduler.
+ * Every price fetched from CoinCap is written here, so readers within the staleness bound get it without a
+ * network call.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpotPriceCache {
+
+    private final MeterRegistry meterRegistry;
+
+    // Latest price per upper-cased symbol
+    private final Map<String, SpotPrice> prices = new ConcurrentHashMap<>();
+
+    @Value("${wallet.spot-price-cache.enable:false}")
+    private boolean enabled;
+
+    @Value("${wallet.spot-price-cache.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${wallet.spot-price-cache.max-stale:5m}")
+    private Duration maxStale;
+
+    /**
+     * @param symbol Asset symbol
+     * @return Cached price if it was fetched within the staleness bound, empty otherwise
+     */
+    public Optional<BigDecimal> getFresh(String symbol) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        var cached = prices.get(symbol.toUpperCase());
+        if (cached != null && cached.fetchedAt().plus(ttl).isAfter(Instant.now())) {
+            meterRegistry.counter("spot.price.cache", "result", "hit").increment();
+            return Optional.of(cached.price());
+        }
+
+        meterRegistry.counter("spot.price.cache", "result", "miss").increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Last price fetched for a symbol, up to the max-stale age. Only meant as a fallback for reads while CoinCap is
+     * unavailable, never for prices that get stored
+     *
+     * @param symbol Asset symbol
+     * @return Last known price, or empty if the symbol was never fetched or its price is older than max-stale
+     */
+    public Optional<BigDecimal> getLastKnown(String symbol) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        var cached = prices.get(symbol.toUpperCase());
+        if (cached == null || !cached.fetchedAt().plus(maxStale).isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        meterRegistry.counter("spot.price.cache", "result", "stale").increment();
+        return Optional.of(cached.price());
+    }
+
+    /**
+     * Stores a price that was just fetched from CoinCap
+     *
+     * @param symbol Asset symbol
+     * @param price  Current price in USD
+     */
+    public void put(String symbol, BigDecimal price) {
+        if (enabled) {
+            prices.put(symbol.toUpperCase(), new SpotPrice(price, Instant.now()));
+        }
+    }
+
+    /**
+     * @param fetched Current prices in USD keyed by symbol, all fetched just now
+     */
+    public void putAll(Map<String, BigDecimal> fetched) {
+        fetched.forEach(this::put);
+    }
+
+    private record SpotPrice(BigDecimal price, Instant fetchedAt) {}
+}
@@ -14,14 +14,17 @@ import com.spicep.cryptowallet.exception.WalletAlreadyExistsException;
 import com.spicep.cryptowallet.exception.WalletNotFoundException;
 import com.spicep.cryptowallet.mapper.WalletMapper;
 import com.spicep.cryptowallet.repository.AssetRepository;
-import com.spicep.cryptowallet.repository.PriceHistoryRepository;
 import com.spicep.cryptowallet.repository.UserRepository;
 import com.spicep.cryptowallet.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 @Service
@@ -33,7 +36,7 @@ public class WalletService {
     private final UserRepository userRepository;
     private final WalletRepository walletRepository;
     private final AssetRepository assetRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceHistoryWriter priceHistoryWriter;
 
     private final WalletMapper walletMapper;
 
@@ -55,71 +58,93 @@ public class WalletService {
     }
 
     public WalletResponse getWallet(UUID walletId) {
-        var wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> WalletNotFoundException.notFound(walletId));
-        return walletMapper.toResponse(wallet);
+        return walletMapper.toResponse(findWallet(walletId));
     }
 
     @Transactional
     public WalletResponse addAsset(UUID walletId, AddAssetRequest input) {
-        var wallet = walletRepository.findById(walletId).orElseThrow(() -> WalletNotFoundException.notFound(walletId));
+        var wallet = findWallet(walletId);
 
         var symbolUpper = input.symbol().toUpperCase();
         var currentPrice = coinCapService.validateAssetPrice(input.symbol(), input.price());
 
-        // Record price in history
-        var priceHistory = PriceHistory.create(symbolUpper, currentPrice);
-        priceHistoryRepository.save(priceHistory);
-
-        // Check if asset with this symbol already exists in wallet
-        var existingAssets = assetRepository.findByWalletIdAndSymbol(walletId, symbolUpper);
+        // Check if asset with this symbol already exists in wallet, the assets are already loaded
+        var exists = wallet.getAssets().stream().anyMatch(asset -> asset.getSymbol().equalsIgnoreCase(symbolUpper));
 
-        if (!existingAssets.isEmpty()) {
+        if (exists) {
             throw AssetAlreadyExistsException.forWallet(symbolUpper, walletId);
         } else {
             var asset = Asset.builder().symbol(symbolUpper).quantity(input.quantity()).acquisitionPrice(input.price())
-                    .currentPrice(currentPrice).build();
+                    .build();
+            // Rounded like the stored current_price, so the stored market value matches it
+            asset.updatePrice(currentPrice);
             wallet.addAsset(asset);
-            walletRepository.save(wallet);
-
+            try {
+                walletRepository.save(wallet);
+                // The stored total, which also has any price tick committed meanwhile
+                wallet.setTotalValue(walletRepository.refreshTotalValue(walletId));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent request added the same symbol first, caught by the unique (wallet_id, symbol) constraint
+                throw AssetAlreadyExistsException.forWallet(symbolUpper, walletId);
+            }
+
+            recordPriceAfterCommit(symbolUpper, currentPrice);
             log.info("Added new asset {} to wallet {}: quantity {}", symbolUpper, walletId, input.quantity());
         }
 
-        // Refresh wallet to get updated totals
-        var updatedWallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> WalletNotFoundException.notFound(walletId));
-
-        return walletMapper.toResponse(updatedWallet);
+        return walletMapper.toResponse(wallet);
     }
 
     @Transactional
     public WalletResponse updateAsset(UUID walletId, UUID assetId, UpdateAssetRequest input) {
-        var wallet = walletRepository.findById(walletId).orElseThrow(() -> WalletNotFoundException.notFound(walletId));
+        var wallet = findWallet(walletId);
 
-        var asset = assetRepository.findById(assetId).orElseThrow(() -> AssetNotFoundException.notFound(assetId));
-
-        // Verify asset belongs to this wallet
-        if (!asset.getWallet().getId().equals(walletId)) {
-            throw AssetNotFoundException.notFoundInWallet(assetId, walletId);
-        }
+        // The asset must belong to this wallet, the lookup only hits the database to tell the two errors apart
+        var asset = wallet.getAssets().stream()
+                .filter(a -> a.getId().equals(assetId))
+                .findFirst()
+                .orElseThrow(() -> assetRepository.existsById(assetId)
+                        ? AssetNotFoundException.notFoundInWallet(assetId, walletId)
+                        : AssetNotFoundException.notFound(assetId));
 
         var currentPrice = coinCapService.getCurrentPrice(asset.getSymbol());
 
-        // Record price in history
-        var priceHistory = PriceHistory.create(asset.getSymbol(), currentPrice);
-        priceHistoryRepository.save(priceHistory);
-
-        // Update asset
-        asset.setQuantity(input.quantity());
-        asset.updatePrice(currentPrice);
+        // Update asset, then bring the stored wallet total in line with the stored asset values
+        wallet.updateAsset(asset, input.quantity(), currentPrice);
         assetRepository.save(asset);
+        wallet.setTotalValue(walletRepository.refreshTotalValue(walletId));
+        recordPriceAfterCommit(asset.getSymbol(), currentPrice);
 
         log.info("Updated asset {} in wallet {}: new quantity {}", asset.getSymbol(), walletId, input.quantity());
 
-        var updatedWallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> WalletNotFoundException.notFound(walletId));
+        return walletMapper.toResponse(wallet);
+    }
 
-        return walletMapper.toResponse(updatedWallet);
+    /**
+     * Records the price in history once the transaction commits. The history buffer is written outside the
+     * transaction, so appending right away would keep the row of a rolled back change
+     */
+    private void recordPriceAfterCommit(String symbol, BigDecimal price) {
+        var priceHistory = PriceHistory.create(symbol, price);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            priceHistoryWriter.append(priceHistory);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                priceHistoryWriter.append(priceHistory);
+            }
+        });
+    }
+
+    /**
+     * Loads the wallet with its user and assets in one round trip, everything the response mapping reads
+     */
+    private Wallet findWallet(UUID walletId) {
+        return walletRepository.findWithUserAndAssetsById(walletId)
+                .orElseThrow(() -> WalletNotFoundException.notFound(walletId));
     }
 
 }
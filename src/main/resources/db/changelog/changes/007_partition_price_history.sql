@@ -0,0 +1,44 @@
+--liquibase formatted sql
+-- changeset nunopinho:007_partition_price_history splitStatements:false
+
+ALTER TABLE price_history RENAME TO price_history_legacy;
+
+-- The partition key has to be part of the primary key
+CREATE TABLE price_history
+(
+    id         UUID NOT NULL,
+    symbol     VARCHAR(20) NOT NULL,
+    price      DECIMAL(20, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_price_history PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_price_history_symbol_created_at ON price_history (symbol, created_at);
+
+-- Safety net for rows outside the managed monthly partitions, expected to stay empty
+CREATE TABLE price_history_default PARTITION OF price_history DEFAULT;
+
+-- Monthly partitions from the oldest existing row up to 3 months ahead, later ones are created by the application
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM price_history_legacy), now()))::DATE;
+    last_month  DATE := date_trunc('month', now() + INTERVAL '3 months')::DATE;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF price_history FOR VALUES FROM (%L) TO (%L)',
+                       'price_history_' || to_char(month_start, 'YYYY_MM'), month_start,
+                       (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO price_history (id, symbol, price, created_at)
+SELECT id, symbol, price, created_at FROM price_history_legacy;
+
+DROP TABLE price_history_legacy;
+
+-- rollback CREATE TABLE price_history_heap (id UUID PRIMARY KEY, symbol VARCHAR(20) NOT NULL, price DECIMAL(20, 2) NOT NULL, created_at TIMESTAMP NOT NULL);
+-- rollback INSERT INTO price_history_heap (id, symbol, price, created_at) SELECT id, symbol, price, created_at FROM price_history;
+-- rollback DROP TABLE price_history;
+-- rollback ALTER TABLE price_history_heap RENAME TO price_history;
+-- rollback CREATE INDEX idx_symbol_timestamp ON price_history (symbol, created_at);
@@ -0,0 +1,41 @@
+--liquibase formatted sql
+-- changeset nunopinho:008_add_price_rollup_tables
+
+CREATE TABLE price_history_hourly
+(
+    symbol       VARCHAR(20) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    open_price   DECIMAL(20, 2) NOT NULL,
+    high_price   DECIMAL(20, 2) NOT NULL,
+    low_price    DECIMAL(20, 2) NOT NULL,
+    close_price  DECIMAL(20, 2) NOT NULL,
+    price_sum    DECIMAL(30, 2) NOT NULL,
+    sample_count INTEGER NOT NULL,
+    CONSTRAINT pk_price_history_hourly PRIMARY KEY (symbol, bucket_start)
+);
+
+CREATE TABLE price_history_daily
+(
+    symbol       VARCHAR(20) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    open_price   DECIMAL(20, 2) NOT NULL,
+    high_price   DECIMAL(20, 2) NOT NULL,
+    low_price    DECIMAL(20, 2) NOT NULL,
+    close_price  DECIMAL(20, 2) NOT NULL,
+    price_sum    DECIMAL(30, 2) NOT NULL,
+    sample_count INTEGER NOT NULL,
+    CONSTRAINT pk_price_history_daily PRIMARY KEY (symbol, bucket_start)
+);
+
+-- Raw price_history rows up to processed_until are already part of the rollups
+CREATE TABLE price_rollup_watermarks
+(
+    name            VARCHAR(50) PRIMARY KEY,
+    processed_until TIMESTAMP NOT NULL
+);
+
+INSERT INTO price_rollup_watermarks (name, processed_until) VALUES ('price_history', '1970-01-01 00:00:00');
+
+-- rollback DROP TABLE price_rollup_watermarks;
+-- rollback DROP TABLE price_history_daily;
+-- rollback DROP TABLE price_history_hourly;
@@ -0,0 +1,15 @@
+--liquibase formatted sql
+-- changeset nunopinho:009_add_historical_prices_table
+
+-- Daily prices fetched from CoinCap for past dates, they never change so each one is fetched once
+CREATE TABLE historical_prices
+(
+    id         UUID PRIMARY KEY,
+    symbol     VARCHAR(20) NOT NULL,
+    price_date DATE NOT NULL,
+    price      DECIMAL(30, 10) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uq_historical_prices_symbol_date UNIQUE (symbol, price_date)
+);
+
+-- rollback DROP TABLE historical_prices;
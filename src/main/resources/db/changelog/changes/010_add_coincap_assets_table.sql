@@ -0,0 +1,21 @@
+--liquibase formatted sql
+-- changeset nunopinho:010_add_coincap_assets_table
+
+-- Last known CoinCap asset catalogue, so discovery endpoints work right after a deploy and while CoinCap is down
+CREATE TABLE coincap_assets
+(
+    id                  VARCHAR(100) PRIMARY KEY,
+    rank                INTEGER,
+    symbol              VARCHAR(20),
+    name                VARCHAR(100),
+    price_usd           NUMERIC,
+    supply              NUMERIC,
+    max_supply          NUMERIC,
+    market_cap_usd      NUMERIC,
+    volume_usd_24hr     NUMERIC,
+    change_percent_24hr NUMERIC,
+    vwap_24hr           NUMERIC,
+    updated_at          TIMESTAMP NOT NULL
+);
+
+-- rollback DROP TABLE coincap_assets;
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+-- changeset nunopinho:011_add_wallet_value_columns
+
+-- Read-side values, kept up to date on every price or quantity change instead of being computed on every read
+ALTER TABLE assets
+    ADD COLUMN market_value DECIMAL(38, 10) NOT NULL DEFAULT 0;
+
+ALTER TABLE wallets
+    ADD COLUMN total_value DECIMAL(38, 10) NOT NULL DEFAULT 0;
+
+UPDATE assets SET market_value = quantity * current_price;
+
+UPDATE wallets w
+SET total_value = t.total
+FROM (SELECT wallet_id, SUM(market_value) AS total FROM assets GROUP BY wallet_id) t
+WHERE w.id = t.wallet_id;
+
+-- rollback ALTER TABLE wallets DROP COLUMN total_value;
+-- rollback ALTER TABLE assets DROP COLUMN market_value;
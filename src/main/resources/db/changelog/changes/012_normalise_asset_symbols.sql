@@ -0,0 +1,21 @@
+--liquibase formatted sql
+-- changeset nunopinho:012_normalise_asset_symbols
+-- preconditions onFail:HALT onError:HALT
+-- precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM (SELECT 1 FROM assets GROUP BY wallet_id, UPPER(symbol) HAVING COUNT(*) > 1) duplicates
+
+-- Symbols are stored upper-cased, so lookups compare the plain column and can use its indexes
+UPDATE assets SET symbol = UPPER(symbol) WHERE symbol <> UPPER(symbol);
+
+ALTER TABLE assets
+    ADD CONSTRAINT ck_assets_symbol_upper CHECK (symbol = UPPER(symbol));
+
+-- One row per symbol in a wallet, its leading wallet_id also serves wallet lookups
+ALTER TABLE assets
+    ADD CONSTRAINT uq_assets_wallet_symbol UNIQUE (wallet_id, symbol);
+
+-- Price updates by symbol and the distinct symbol scan
+CREATE INDEX idx_assets_symbol ON assets (symbol);
+
+-- rollback DROP INDEX idx_assets_symbol;
+-- rollback ALTER TABLE assets DROP CONSTRAINT uq_assets_wallet_symbol;
+-- rollback ALTER TABLE assets DROP CONSTRAINT ck_assets_symbol_upper;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+-- changeset nunopinho:013_add_scheduler_leases_table
+
+-- One row per scheduled job that must run on a single instance, held by its owner until expires_at
+CREATE TABLE scheduler_leases
+(
+    name       VARCHAR(100) PRIMARY KEY,
+    owner      VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP    NOT NULL
+);
+
+-- rollback DROP TABLE scheduler_leases;
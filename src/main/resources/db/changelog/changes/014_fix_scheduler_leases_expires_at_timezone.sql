@@ -0,0 +1,7 @@
+--liquibase formatted sql
+-- changeset nunopinho:014_fix_scheduler_leases_expires_at_timezone
+
+-- Compared with now() (timestamptz): without a zone every connection converted it with its own session time zone
+ALTER TABLE scheduler_leases ALTER COLUMN expires_at TYPE TIMESTAMPTZ;
+
+-- rollback ALTER TABLE scheduler_leases ALTER COLUMN expires_at TYPE TIMESTAMP;
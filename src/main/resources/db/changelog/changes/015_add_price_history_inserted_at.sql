@@ -0,0 +1,21 @@
+--liquibase formatted sql
+-- changeset nunopinho:015_add_price_history_inserted_at
+
+-- created_at is assigned by the application and re-queued rows are written with their original value, so the rollup
+-- watermark follows the database insert time instead. Existing rows get a constant, which avoids rewriting the table
+ALTER TABLE price_history ADD COLUMN inserted_at TIMESTAMPTZ NOT NULL DEFAULT '1970-01-01 00:00:00+00';
+ALTER TABLE price_history ALTER COLUMN inserted_at SET DEFAULT now();
+
+-- Rows past the old created_at watermark are not rolled up yet
+UPDATE price_history SET inserted_at = now()
+WHERE created_at > (SELECT processed_until FROM price_rollup_watermarks WHERE name = 'price_history');
+
+ALTER TABLE price_rollup_watermarks ALTER COLUMN processed_until TYPE TIMESTAMPTZ;
+UPDATE price_rollup_watermarks SET processed_until = '1970-01-01 00:00:00+00' WHERE name = 'price_history';
+
+CREATE INDEX idx_price_history_inserted_at ON price_history (inserted_at);
+
+-- rollback DROP INDEX idx_price_history_inserted_at;
+-- rollback ALTER TABLE price_rollup_watermarks ALTER COLUMN processed_until TYPE TIMESTAMP;
+-- rollback UPDATE price_rollup_watermarks SET processed_until = LOCALTIMESTAMP WHERE name = 'price_history';
+-- rollback ALTER TABLE price_history DROP COLUMN inserted_at;
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+-- changeset nunopinho:016_rebuild_price_history_daily_in_utc
+
+-- Daily buckets used to be local days of created_at. They are now UTC days, which only the application can compute
+-- (created_at has no zone), so the rollup rebuilds them from every raw row on its next run
+DELETE FROM price_history_daily;
+UPDATE price_rollup_watermarks SET processed_until = '-infinity' WHERE name = 'price_history';
+
+-- comment: Cannot be rolled back, the local day buckets are deleted and the previous version rebuilds them
+-- rollback empty
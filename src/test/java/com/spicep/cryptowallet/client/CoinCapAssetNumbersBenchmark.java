@@ -0,0 +1,97 @@
+package com.spicep.cryptowallet.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numeric fields of a CoinCap assets listing page: plain strings parsed on every use (the former DTO), eagerly
+ * decoded {@link BigDecimal}s, and the lazily parsed numbers of {@link CoinCapAsset}. Sorting by market cap stands
+ * for a caller reading the same field many times (as the search index does).
+ * Run like {@link CoinCapAssetsDecodeBenchmark}, with {@code CoinCapAssetNumbersBenchmark} as the include pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class CoinCapAssetNumbersBenchmark {
+
+    private static final TypeReference<Page<StringAsset>> STRING_PAGE = new TypeReference<>() {};
+    private static final TypeReference<Page<EagerAsset>> EAGER_PAGE = new TypeReference<>() {};
+
+    @Param({"2000"})
+    private int assets;
+
+    private ObjectMapper objectMapper;
+    private byte[] listing;
+    private List<StringAsset> stringAssets;
+    private List<CoinCapAsset> lazyAssets;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listing = objectMapper.writeValueAsBytes(CoinCapAssetsDecodeBenchmark.listing(assets));
+        stringAssets = objectMapper.readValue(listing, STRING_PAGE).data();
+        lazyAssets = objectMapper.readValue(listing, CoinCapAssetsResponse.class).data();
+    }
+
+    @Benchmark
+    public List<StringAsset> decodeStrings() throws IOException {
+        return objectMapper.readValue(listing, STRING_PAGE).data();
+    }
+
+    @Benchmark
+    public List<EagerAsset> decodeEagerDecimals() throws IOException {
+        return objectMapper.readValue(listing, EAGER_PAGE).data();
+    }
+
+    @Benchmark
+    public List<CoinCapAsset> decodeLazyDecimals() throws IOException {
+        return objectMapper.readValue(listing, CoinCapAssetsResponse.class).data();
+    }
+
+    @Benchmark
+    public List<StringAsset> sortByMarketCapStrings() {
+        return stringAssets.stream()
+                .sorted(Comparator.comparing((StringAsset a) -> new BigDecimal(a.marketCapUsd())).reversed())
+                .toList();
+    }
+
+    @Benchmark
+    public List<CoinCapAsset> sortByMarketCapLazyDecimals() {
+        return lazyAssets.stream()
+                .sorted(Comparator.comparing((CoinCapAsset a) -> a.marketCapUsd().decimalValue()).reversed())
+                .toList();
+    }
+
+    public record Page<T>(List<T> data, Long timestamp) {}
+
+    public record StringAsset(String id, String rank, String symbol, String name, String priceUsd, String supply,
+                              String maxSupply, String marketCapUsd, String volumeUsd24Hr, String changePercent24Hr,
+                              String vwap24Hr) {}
+
+    public record EagerAsset(String id, String rank, String symbol, String name, BigDecimal priceUsd,
+                             BigDecimal supply, BigDecimal maxSupply, BigDecimal marketCapUsd,
+                             BigDecimal volumeUsd24Hr, BigDecimal changePercent24Hr, BigDecimal vwap24Hr) {}
+}
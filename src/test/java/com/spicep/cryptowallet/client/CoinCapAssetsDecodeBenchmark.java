@@ -0,0 +1,137 @@
+package com.spicep.cryptowallet.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import feign.Request;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.optionals.OptionalDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a CoinCap assets listing page: full Feign/Jackson decode into {@link CoinCapAssetsResponse} followed by
+ * the projection the caller keeps, against the streamed projections of {@link CoinCapAssetsDecoder}.
+ * Run with the GC profiler to see the allocation per decode next to the time:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main CoinCapAssetsDecodeBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class CoinCapAssetsDecodeBenchmark {
+
+    @Param({"2000"})
+    private int assets;
+
+    private byte[] listing;
+    private Decoder decoder;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        var messageConverters = new HttpMessageConverters(false,
+                List.of(new MappingJackson2HttpMessageConverter(objectMapper)));
+        var customizers = new StaticListableBeanFactory().getBeanProvider(HttpMessageConverterCustomizer.class);
+        decoder = new CoinCapAssetsDecoder(objectMapper.getFactory(),
+                new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(() -> messageConverters, customizers))));
+        listing = objectMapper.writeValueAsBytes(listing(assets));
+    }
+
+    @Benchmark
+    public List<String> fullDecodeSymbols() throws IOException {
+        var response = (CoinCapAssetsResponse) decoder.decode(response(), CoinCapAssetsResponse.class);
+        return response.data().stream().map(CoinCapAsset::symbol).toList();
+    }
+
+    @Benchmark
+    public List<String> streamedSymbols() throws IOException {
+        return ((CoinCapAssetSymbols) decoder.decode(response(), CoinCapAssetSymbols.class)).symbols();
+    }
+
+    @Benchmark
+    public Map<String, LazyDecimal> fullDecodePrices() throws IOException {
+        var response = (CoinCapAssetsResponse) decoder.decode(response(), CoinCapAssetsResponse.class);
+        Map<String, LazyDecimal> prices = new HashMap<>();
+        for (CoinCapAsset asset : response.data()) {
+            if (asset.symbol() != null && asset.priceUsd() != null) {
+                prices.putIfAbsent(asset.symbol().toUpperCase(Locale.ROOT), asset.priceUsd());
+            }
+        }
+        return prices;
+    }
+
+    @Benchmark
+    public Map<String, LazyDecimal> streamedPrices() throws IOException {
+        return ((CoinCapAssetPrices) decoder.decode(response(), CoinCapAssetPrices.class)).pricesBySymbol();
+    }
+
+    private Response response() {
+        var request = Request.create(Request.HttpMethod.GET, "https://rest.coincap.io/v3/assets",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of("Content-Type", List.of("application/json")))
+                .body(listing)
+                .build();
+    }
+
+    // Same shape as a CoinCap v3 listing page, including the fields our DTO does not map
+    static Map<String, Object> listing(int size) {
+        List<Map<String, Object>> data = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Map<String, Object> asset = new LinkedHashMap<>();
+            asset.put("id", "asset-" + i);
+            asset.put("rank", String.valueOf(i));
+            asset.put("symbol", "SYM" + i);
+            asset.put("name", "Asset number " + i);
+            asset.put("supply", "19872345.000000000000000000");
+            asset.put("maxSupply", i % 3 == 0 ? null : "21000000.0000000000000000");
+            asset.put("marketCapUsd", (1_234_567_890_123L / i) + ".456789012345678901");
+            asset.put("volumeUsd24Hr", "12345678901.2345678901234567890");
+            asset.put("priceUsd", "62123.4567890123456789");
+            asset.put("changePercent24Hr", "-1.2345678901234567");
+            asset.put("vwap24Hr", "61987.6543210987654321");
+            asset.put("explorer", "https://explorer.example.org/asset/" + i);
+            asset.put("tokens", Map.of("1", List.of("0x" + Integer.toHexString(i * 7919))));
+            data.add(asset);
+        }
+        return Map.of("data", data, "timestamp", 1700000000000L);
+    }
+}
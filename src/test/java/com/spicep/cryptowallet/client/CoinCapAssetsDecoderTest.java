@@ -0,0 +1,102 @@
+package com.spicep.cryptowallet.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import feign.Request;
+import feign.Response;
+import feign.codec.Decoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class CoinCapAssetsDecoderTest {
+
+    private static final String LISTING = """
+            {
+              "data": [
+                {"id": "bitcoin", "rank": "1", "symbol": "BTC", "name": "Bitcoin", "priceUsd": "100.00",
+                 "explorer": "https://blockchain.info/", "tokens": {"1": ["0xabc"]}},
+                {"id": "ethereum", "rank": "2", "symbol": "eth", "name": "Ethereum", "priceUsd": "50.00"},
+                {"id": "bitcoin-fork", "rank": "3", "symbol": "BTC", "name": "Fork", "priceUsd": "1.00"},
+                {"id": "unpriced", "rank": "4", "symbol": "NOP", "name": "No price", "priceUsd": null},
+                {"id": "nameless", "rank": "5", "name": "No symbol", "priceUsd": "2.00"}
+              ],
+              "timestamp": 1700000000000
+            }
+            """;
+
+    @Mock
+    private Decoder delegate;
+
+    private CoinCapAssetsDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new CoinCapAssetsDecoder(new JsonFactory(), delegate);
+    }
+
+    @Test
+    @DisplayName("Symbols projection keeps only the symbols, in listing order")
+    void decode_symbols() throws Exception {
+        var symbols = (CoinCapAssetSymbols) decoder.decode(response(LISTING), CoinCapAssetSymbols.class);
+
+        assertThat(symbols.symbols()).containsExactly("BTC", "eth", "BTC", "NOP");
+        assertThat(symbols.assetCount()).isEqualTo(5);
+        assertThat(symbols.timestamp()).isEqualTo(1700000000000L);
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    @DisplayName("Prices projection keys by upper-cased symbol and keeps the best ranked asset")
+    void decode_prices() throws Exception {
+        var prices = (CoinCapAssetPrices) decoder.decode(response(LISTING), CoinCapAssetPrices.class);
+
+        assertThat(prices.pricesBySymbol()).containsOnlyKeys("BTC", "ETH");
+        assertThat(prices.pricesBySymbol().get("BTC").decimalValue()).isEqualByComparingTo("100.00");
+        assertThat(prices.pricesBySymbol().get("ETH").decimalValue()).isEqualByComparingTo("50.00");
+        assertThat(prices.assetCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Other types are decoded by the delegate")
+    void decode_delegatesOtherTypes() throws Exception {
+        var response = response(LISTING);
+
+        decoder.decode(response, CoinCapAssetsResponse.class);
+
+        verify(delegate).decode(response, CoinCapAssetsResponse.class);
+    }
+
+    @Test
+    @DisplayName("A body that is not a listing object fails to decode")
+    void decode_rejectsNonObject() {
+        assertThatThrownBy(() -> decoder.decode(response("[]"), CoinCapAssetSymbols.class))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    private static Response response(String body) {
+        var request = Request.create(Request.HttpMethod.GET, "https://rest.coincap.io/v3/assets",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.spicep.cryptowallet.client;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientCoinCapClientTest {
+
+    @Mock
+    private CoinCapClient delegate;
+
+    private ResilientCoinCapClient client;
+
+    @BeforeEach
+    void setUp() {
+        var retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryExceptions(FeignException.ServiceUnavailable.class)
+                .build());
+        var circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .recordExceptions(FeignException.ServiceUnavailable.class)
+                .build());
+
+        // One call in flight per bulkhead, a full bulkhead rejects right away
+        var bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+
+        client = new ResilientCoinCapClient(delegate, retryRegistry, circuitBreakerRegistry,
+                RateLimiterRegistry.ofDefaults(), bulkheadRegistry);
+    }
+
+    @Test
+    @DisplayName("Transient CoinCap failures are retried")
+    void getAsset_retriesTransientFailure() {
+        var asset = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100.00"),
+                null, null, null, null, null, null);
+        when(delegate.getAsset("bitcoin"))
+                .thenThrow(unavailable())
+                .thenReturn(new CoinCapAssetResponse(asset, 0L));
+
+        assertThat(client.getAsset("bitcoin").data().priceUsd().decimalValue()).isEqualByComparingTo("100.00");
+        verify(delegate, times(2)).getAsset("bitcoin");
+    }
+
+    @Test
+    @DisplayName("Once the circuit is open calls fail fast without reaching CoinCap")
+    void getAsset_failsFastWhenCircuitOpen() {
+        when(delegate.getAsset("bitcoin")).thenThrow(unavailable());
+
+        // The first two attempts open the circuit, the last retry is already rejected
+        assertThatThrownBy(() -> client.getAsset("bitcoin"))
+                .isInstanceOf(CoinCapApiException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThatThrownBy(() -> client.getAsset("bitcoin")).isInstanceOf(CoinCapApiException.class);
+        verify(delegate, times(2)).getAsset("bitcoin");
+    }
+
+    @Test
+    @DisplayName("Interactive calls filling the asset bulkhead do not reject the scheduler's calls to the same endpoint")
+    void getAsset_schedulerHasItsOwnBulkhead() throws Exception {
+        var asset = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100.00"),
+                null, null, null, null, null, null);
+        var inFlight = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(delegate.getAsset("bitcoin"))
+                .thenAnswer(invocation -> {
+                    inFlight.countDown();
+                    release.await();
+                    return new CoinCapAssetResponse(asset, 0L);
+                })
+                .thenReturn(new CoinCapAssetResponse(asset, 0L));
+
+        var interactive = CompletableFuture.runAsync(() -> client.getAsset("bitcoin"));
+        inFlight.await();
+
+        assertThatThrownBy(() -> client.getAsset("bitcoin"))
+                .isInstanceOf(CoinCapApiException.class)
+                .hasMessageContaining("coincap-asset");
+        assertThat(CoinCapCaller.asScheduler(() -> client.getAsset("bitcoin")).data().symbol()).isEqualTo("BTC");
+
+        release.countDown();
+        interactive.get();
+    }
+
+    private static FeignException unavailable() {
+        var request = Request.create(Request.HttpMethod.GET, "/assets/bitcoin", Map.of(), new byte[0],
+                StandardCharsets.UTF_8, null);
+        return new FeignException.ServiceUnavailable("down", request, null, Map.of());
+    }
+}
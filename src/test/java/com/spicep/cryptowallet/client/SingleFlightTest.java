@@ -0,0 +1,72 @@
+package com.spicep.cryptowallet.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    @DisplayName("Concurrent calls with the same key share one execution and its result")
+    void execute_coalescesConcurrentCalls() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var calls = new AtomicInteger();
+        Supplier<String> call = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "bitcoin";
+        };
+
+        var first = CompletableFuture.supplyAsync(() -> singleFlight.execute("BTC", call));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        var second = CompletableFuture.supplyAsync(() -> singleFlight.execute("BTC", call));
+        while (singleFlight.coalesced() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("bitcoin");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("bitcoin");
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.executed()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Completed calls are not kept, the next call with the same key runs again")
+    void execute_doesNotCacheResults() {
+        singleFlight.execute("BTC", () -> "a");
+        var result = singleFlight.execute("BTC", () -> "b");
+
+        assertThat(result).isEqualTo("b");
+        assertThat(singleFlight.executed()).isEqualTo(2);
+        assertThat(singleFlight.coalesced()).isZero();
+    }
+
+    @Test
+    @DisplayName("A failing call rethrows its exception unwrapped")
+    void execute_rethrowsFailure() {
+        assertThatThrownBy(() -> singleFlight.execute("BTC", () -> {
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
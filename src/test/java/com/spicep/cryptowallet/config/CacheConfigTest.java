@@ -0,0 +1,50 @@
+package com.spicep.cryptowallet.config;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.spicep.cryptowallet.service.CoinCapIdLookup;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class CacheConfigTest {
+
+    @Mock
+    private CoinCapIdLookup coinCapIdLookup;
+
+    @Test
+    @DisplayName("Only configured caches exist, with their own policy and statistics")
+    void cacheManager_buildsConfiguredCaches() {
+        var policies = new CachePolicies(Map.of("coincapIds",
+                new CachePolicies.Policy(100, Duration.ofHours(24), Duration.ofHours(1), 0.2)));
+
+        var cacheManager = new CacheConfig().cacheManager(policies, coinCapIdLookup);
+
+        assertThat(cacheManager.getCacheNames()).containsExactly("coincapIds");
+        assertThat(cacheManager.getCache("unknown")).isNull();
+
+        var nativeCache = cacheManager.getCache("coincapIds").getNativeCache();
+        assertThat(nativeCache).isInstanceOf(LoadingCache.class);
+        var caffeine = (LoadingCache<?, ?>) nativeCache;
+        assertThat(caffeine.policy().isRecordingStats()).isTrue();
+        assertThat(caffeine.policy().refreshAfterWrite()).isPresent();
+        assertThat(caffeine.policy().expireVariably()).isPresent();
+    }
+
+    @Test
+    @DisplayName("Jittered expiry stays between the base duration minus the jitter share and the base duration")
+    void jitteredExpiry_staysInRange() {
+        var expiry = new JitteredExpiry(Duration.ofMinutes(10), 0.2);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(expiry.jittered()).isBetween(Duration.ofMinutes(8).toNanos(), Duration.ofMinutes(10).toNanos());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.spicep.cryptowallet.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCounterTest {
+
+    private final QueryCounter queryCounter = new QueryCounter();
+
+    @Test
+    @DisplayName("Statements are only counted while a count is open on the thread")
+    void countsOnlyWhileOpen() {
+        queryCounter.inspect("select 1");
+
+        QueryCounter.start();
+        queryCounter.inspect("select 1");
+        queryCounter.inspect("select 2");
+        var counted = QueryCounter.stop();
+        queryCounter.inspect("select 3");
+
+        assertThat(counted).isEqualTo(2);
+        assertThat(QueryCounter.stop()).isZero();
+    }
+
+    @Test
+    @DisplayName("The statement is passed on unchanged")
+    void returnsStatementUnchanged() {
+        assertThat(queryCounter.inspect("select * from wallets")).isEqualTo("select * from wallets");
+    }
+}
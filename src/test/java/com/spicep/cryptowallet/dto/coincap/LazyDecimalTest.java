@@ -0,0 +1,40 @@
+package com.spicep.cryptowallet.dto.coincap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LazyDecimalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("CoinCap numbers are decoded from strings or numbers, blank and null become null")
+    void deserialize() throws Exception {
+        var data = objectMapper.readValue("""
+                {"priceUsd": "62123.456789012345678901", "time": 1700000000000, "date": "2023-11-14"}
+                """, CoinCapHistoryData.class);
+        var asset = objectMapper.readValue("""
+                {"id": "bitcoin", "priceUsd": 100.5, "supply": "", "maxSupply": null}
+                """, CoinCapAsset.class);
+
+        assertThat(data.priceUsd().decimalValue()).isEqualByComparingTo("62123.456789012345678901");
+        assertThat(asset.priceUsd().decimalValue()).isEqualByComparingTo("100.5");
+        assertThat(asset.supply()).isNull();
+        assertThat(asset.maxSupply()).isNull();
+    }
+
+    @Test
+    @DisplayName("The text is serialized back as received and only parsed when the value is read")
+    void serializeAndParseLazily() throws Exception {
+        var price = LazyDecimal.of("not-a-number");
+
+        assertThat(objectMapper.writeValueAsString(price)).isEqualTo("\"not-a-number\"");
+        assertThat(price).isEqualTo(LazyDecimal.of("not-a-number"));
+        assertThatThrownBy(price::decimalValue).isInstanceOf(NumberFormatException.class);
+        assertThat(objectMapper.writeValueAsString(LazyDecimal.of("1.50"))).isEqualTo("\"1.50\"");
+    }
+}
@@ -0,0 +1,45 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AssetSearchIndexTest {
+
+    private final AssetSearchIndex index = AssetSearchIndex.of(List.of(
+            asset("wrapped-bitcoin", "WBTC", "Wrapped Bitcoin", "9000000000"),
+            asset("bitcoin", "BTC", "Bitcoin", "1300000000000"),
+            asset("bitcoin-cash", "BCH", "Bitcoin Cash", "9500000000"),
+            asset("ethereum", "ETH", "Ethereum", "400000000000"),
+            asset("unknown", "UNK", "Unknown", null)));
+
+    @Test
+    @DisplayName("Exact symbol first, then prefix matches, then substring matches, each by market cap")
+    void search_ranksMatches() {
+        var results = index.search("btc", 10, 0);
+
+        assertThat(results).extracting(CoinCapAsset::id).containsExactly("bitcoin", "wrapped-bitcoin");
+
+        assertThat(index.search("Bitcoin", 10, 0)).extracting(CoinCapAsset::id)
+                .containsExactly("bitcoin", "bitcoin-cash", "wrapped-bitcoin");
+    }
+
+    @Test
+    @DisplayName("Without a term every asset is listed by market cap, paginated in memory")
+    void search_withoutTermPaginates() {
+        assertThat(index.search(null, 2, 1)).extracting(CoinCapAsset::id)
+                .containsExactly("ethereum", "bitcoin-cash");
+        assertThat(index.search(" ", 10, 4)).extracting(CoinCapAsset::id).containsExactly("unknown");
+        assertThat(index.search("", 10, 10)).isEmpty();
+    }
+
+    private static CoinCapAsset asset(String id, String symbol, String name, String marketCap) {
+        return new CoinCapAsset(id, "1", symbol, name, LazyDecimal.of("1"),
+                null, null, LazyDecimal.of(marketCap), null, null, null);
+    }
+}
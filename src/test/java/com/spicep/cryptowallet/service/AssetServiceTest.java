@@ -2,7 +2,9 @@ package com.spicep.cryptowallet.service;
 
 import com.spicep.cryptowallet.client.CoinCapClient;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetSymbols;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +15,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,21 +23,16 @@ class AssetServiceTest {
 
     @Mock
     private CoinCapClient coinCapClient;
+    @Mock
+    private CoinCapCatalogue coinCapCatalogue;
 
     @Test
     @DisplayName("getAvailableSymbols returns distinct, sorted symbols from CoinCap")
     void getAvailableSymbols_returnsDistinctSortedSymbols() {
-        var response = new CoinCapAssetsResponse(
-                List.of(
-                        new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", "0", null, null, null, null, null, null),
-                        new CoinCapAsset("cardano", "2", "ADA", "Cardano", "0", null, null, null, null, null, null),
-                        new CoinCapAsset("another", "3", "BTC", "Dup", "0", null, null, null, null, null, null)
-                ),
-                0L
-        );
-        when(coinCapClient.getAssets(anyString(), anyInt(), anyInt())).thenReturn(response);
+        when(coinCapClient.getAssetSymbols(anyInt(), anyInt()))
+                .thenReturn(new CoinCapAssetSymbols(List.of("BTC", "ADA", "BTC"), 3, 0L));
 
-        var service = new AssetService(coinCapClient);
+        var service = new AssetService(coinCapClient, coinCapCatalogue);
         var symbols = service.getAvailableSymbols();
 
         assertThat(symbols).containsExactly("ADA", "BTC");
@@ -45,15 +42,31 @@ class AssetServiceTest {
     @DisplayName("getAvailableAssets returns assets from CoinCap with given search/limit/offset")
     void getAvailableAssets_returnsClientData() {
         var response = new CoinCapAssetsResponse(
-                List.of(new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", "100", null, null, null, null, null, null)),
+                List.of(new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100"),
+                        null, null, null, null, null, null)),
                 0L
         );
         when(coinCapClient.getAssets("btc", 10, 0)).thenReturn(response);
 
-        var service = new AssetService(coinCapClient);
+        var service = new AssetService(coinCapClient, coinCapCatalogue);
         var assets = service.getAvailableAssets("btc", 10, 0);
 
         assertThat(assets).hasSize(1);
         assertThat(assets.getFirst().symbol()).isEqualTo("BTC");
     }
+
+    @Test
+    @DisplayName("getAvailableAssets is served from the catalogue search index without calling CoinCap")
+    void getAvailableAssets_servedFromCatalogue() {
+        var bitcoin = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100"),
+                null, null, null, null, null, null);
+        when(coinCapCatalogue.getAssets()).thenReturn(List.of(bitcoin));
+        when(coinCapCatalogue.search("bit", 10, 0)).thenReturn(List.of(bitcoin));
+
+        var service = new AssetService(coinCapClient, coinCapCatalogue);
+        var assets = service.getAvailableAssets("bit", 10, 0);
+
+        assertThat(assets).containsExactly(bitcoin);
+        verifyNoInteractions(coinCapClient);
+    }
 }
@@ -0,0 +1,134 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.client.CoinCapClient;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CoinCapCatalogueTest {
+
+    @Mock
+    private CoinCapClient coinCapClient;
+    @Mock
+    private CoinCapCatalogueStore catalogueStore;
+
+    private CoinCapCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        catalogue = new CoinCapCatalogue(coinCapClient, catalogueStore);
+        ReflectionTestUtils.setField(catalogue, "enabled", true);
+        ReflectionTestUtils.setField(catalogue, "pageSize", 2);
+        ReflectionTestUtils.setField(catalogue, "maxPages", 5);
+    }
+
+    @Test
+    @DisplayName("Loads every page and resolves ambiguous symbols to the best ranked asset")
+    void refresh_loadsPagesAndResolvesByRank() {
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(0)))
+                .thenReturn(response(asset("bitcoin", "1", "BTC"), asset("ethereum", "2", "ETH")));
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(2)))
+                .thenReturn(response(asset("bitcoin-wrapped", "150", "BTC")));
+
+        catalogue.refresh();
+
+        assertThat(catalogue.findId("btc")).contains("bitcoin");
+        assertThat(catalogue.findId("ETH")).contains("ethereum");
+        assertThat(catalogue.findId("DOGE")).isEmpty();
+        assertThat(catalogue.getAssets()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("A failed refresh keeps answering from the previous snapshot")
+    void refresh_keepsSnapshotOnFailure() {
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(0)))
+                .thenReturn(response(asset("bitcoin", "1", "BTC")))
+                .thenThrow(new FeignException.ServiceUnavailable("down", request(), null, Map.of()));
+
+        catalogue.refresh();
+        catalogue.refresh();
+
+        assertThat(catalogue.findId("BTC")).contains("bitcoin");
+    }
+
+    @Test
+    @DisplayName("Startup serves the stored catalogue and a refresh only writes what changed")
+    void warmUp_thenRefreshStoresDiff() {
+        var bitcoin = asset("bitcoin", "1", "BTC");
+        var ethereum = asset("ethereum", "2", "ETH");
+        when(catalogueStore.loadAll()).thenReturn(List.of(bitcoin, ethereum, asset("delisted", "3", "DEL")));
+
+        catalogue.warmUp();
+        assertThat(catalogue.findId("DEL")).contains("delisted");
+
+        var movedEthereum = new CoinCapAsset("ethereum", "2", "ETH", "ethereum", LazyDecimal.of("2"),
+                null, null, null, null, null, null);
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(0))).thenReturn(response(bitcoin, movedEthereum));
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(2))).thenReturn(response());
+
+        catalogue.refresh();
+
+        verify(catalogueStore).applyDiff(List.of(movedEthereum), Set.of("delisted"));
+        assertThat(catalogue.findId("DEL")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A failed write is caught up by the next refresh instead of being lost")
+    void refresh_retriesFailedWrite() {
+        var bitcoin = asset("bitcoin", "1", "BTC");
+        var ethereum = asset("ethereum", "2", "ETH");
+        when(catalogueStore.loadAll()).thenReturn(List.of(bitcoin, asset("delisted", "3", "DEL")));
+        catalogue.warmUp();
+
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(0))).thenReturn(response(bitcoin, ethereum));
+        when(coinCapClient.getAssets(isNull(), eq(2), eq(2))).thenReturn(response());
+        doThrow(new DataAccessResourceFailureException("down"))
+                .doNothing()
+                .when(catalogueStore).applyDiff(List.of(ethereum), Set.of("delisted"));
+
+        catalogue.refresh();
+        catalogue.refresh();
+
+        verify(catalogueStore, times(2)).applyDiff(List.of(ethereum), Set.of("delisted"));
+
+        // Written now, an unchanged listing writes nothing more
+        catalogue.refresh();
+        verify(catalogueStore).applyDiff(List.of(), Set.of());
+    }
+
+    private static CoinCapAssetsResponse response(CoinCapAsset... assets) {
+        return new CoinCapAssetsResponse(List.of(assets), 0L);
+    }
+
+    private static CoinCapAsset asset(String id, String rank, String symbol) {
+        return new CoinCapAsset(id, rank, symbol, id, LazyDecimal.of("1"), null, null, null, null, null, null);
+    }
+
+    private static Request request() {
+        return Request.create(Request.HttpMethod.GET, "/assets", Map.of(), new byte[0], StandardCharsets.UTF_8, null);
+    }
+}
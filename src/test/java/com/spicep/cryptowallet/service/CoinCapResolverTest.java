@@ -0,0 +1,81 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.client.CoinCapClient;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetsResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CoinCapResolverTest {
+
+    @Mock
+    private CoinCapClient coinCapClient;
+    @Mock
+    private CoinCapCatalogue coinCapCatalogue;
+
+    private CoinCapResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new CoinCapResolver(coinCapCatalogue, new CoinCapIdLookup(coinCapClient),
+                new ConcurrentMapCacheManager("coincapIds"));
+    }
+
+    @Test
+    @DisplayName("Symbols in the catalogue are resolved without calling CoinCap")
+    void resolveCoinCapId_fromCatalogue() {
+        when(coinCapCatalogue.findId("BTC")).thenReturn(Optional.of("bitcoin"));
+
+        assertThat(resolver.resolveCoinCapId("BTC")).isEqualTo("bitcoin");
+        verifyNoInteractions(coinCapClient);
+    }
+
+    @Test
+    @DisplayName("Symbols missing from the catalogue are searched once and cached")
+    void resolveCoinCapId_searchesAndCaches() {
+        when(coinCapCatalogue.findId("newc")).thenReturn(Optional.empty());
+        var asset = new CoinCapAsset("new-coin", "900", "NEWC", "New Coin", LazyDecimal.of("1"),
+                null, null, null, null, null, null);
+        when(coinCapClient.getAssets("newc", 100, 0)).thenReturn(new CoinCapAssetsResponse(List.of(asset), 0L));
+
+        assertThat(resolver.resolveCoinCapId("newc")).isEqualTo("new-coin");
+        assertThat(resolver.resolveCoinCapId("newc")).isEqualTo("new-coin");
+        verify(coinCapClient, times(1)).getAssets("newc", 100, 0);
+    }
+
+    @Test
+    @DisplayName("A failed search falls back to the symbol path without caching it")
+    void resolveCoinCapId_searchFailureNotCached() {
+        when(coinCapCatalogue.findId("NEWC")).thenReturn(Optional.empty());
+        var request = Request.create(Request.HttpMethod.GET, "/assets", Map.of(), new byte[0], StandardCharsets.UTF_8,
+                null);
+        var asset = new CoinCapAsset("new-coin", "900", "NEWC", "New Coin", LazyDecimal.of("1"),
+                null, null, null, null, null, null);
+        when(coinCapClient.getAssets("NEWC", 100, 0))
+                .thenThrow(new FeignException.ServiceUnavailable("down", request, null, Map.of()))
+                .thenReturn(new CoinCapAssetsResponse(List.of(asset), 0L));
+
+        assertThat(resolver.resolveCoinCapId("NEWC")).isEqualTo("newc");
+        assertThat(resolver.resolveCoinCapId("NEWC")).isEqualTo("new-coin");
+    }
+}
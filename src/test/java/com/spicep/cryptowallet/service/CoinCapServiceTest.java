@@ -2,19 +2,25 @@ package com.spicep.cryptowallet.service;
 
 import com.spicep.cryptowallet.client.CoinCapClient;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAsset;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetPrices;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponse;
 import com.spicep.cryptowallet.dto.coincap.CoinCapHistoryData;
 import com.spicep.cryptowallet.dto.coincap.CoinCapHistoryResponse;
+import com.spicep.cryptowallet.dto.coincap.LazyDecimal;
 import com.spicep.cryptowallet.exception.AssetNotFoundException;
 import com.spicep.cryptowallet.exception.CoinCapApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -27,6 +33,9 @@ import feign.FeignException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,14 +46,24 @@ class CoinCapServiceTest {
     @Mock
     private CoinCapResolver coinCapResolver;
 
+    private SpotPriceCache spotPriceCache;
     private CoinCapService service;
 
+    @BeforeEach
+    void setUp() {
+        spotPriceCache = new SpotPriceCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(spotPriceCache, "enabled", true);
+        ReflectionTestUtils.setField(spotPriceCache, "ttl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(spotPriceCache, "maxStale", Duration.ofMinutes(5));
+    }
+
     @Test
     @DisplayName("When validating an asset it returns CoinCap price for symbol")
     void validateAssetPrice_success() {
-        service = new CoinCapService(coinCapClient, coinCapResolver);
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
         when(coinCapResolver.resolveCoinCapId("btc")).thenReturn("bitcoin");
-        var asset = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", "100.00", null, null, null, null, null, null);
+        var asset = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100.00"),
+                null, null, null, null, null, null);
         when(coinCapClient.getAsset("bitcoin")).thenReturn(new CoinCapAssetResponse(asset, 0L));
 
         var price = service.validateAssetPrice("btc", BigDecimal.ZERO);
@@ -55,7 +74,7 @@ class CoinCapServiceTest {
     @Test
     @DisplayName("When validating an asset it throws AssetNotFound when CoinCap returns 404")
     void validateAssetPrice_notFound() {
-        service = new CoinCapService(coinCapClient, coinCapResolver);
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
         when(coinCapResolver.resolveCoinCapId("bad")).thenReturn("bad");
         var request = Request.create(Request.HttpMethod.GET, "https://api.coincap.io/v2/assets/bad",
                 Map.of(), null, StandardCharsets.UTF_8, null);
@@ -74,7 +93,7 @@ class CoinCapServiceTest {
     @Test
     @DisplayName("When validating an asset it wraps other Feign errors as CoinCapApiException")
     void validateAssetPrice_apiError() {
-        service = new CoinCapService(coinCapClient, coinCapResolver);
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
         when(coinCapResolver.resolveCoinCapId("btc")).thenReturn("btc");
         var request = Request.create(Request.HttpMethod.GET, "https://api.coincap.io/v2/assets/btc",
                 Map.of(), null, StandardCharsets.UTF_8, null);
@@ -93,12 +112,12 @@ class CoinCapServiceTest {
     @Test
     @DisplayName("When fetching asset historical price it returns first price from history list")
     void getHistoricalPrice_success() {
-        service = new CoinCapService(coinCapClient, coinCapResolver);
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
         when(coinCapResolver.resolveCoinCapId("eth")).thenReturn("ethereum");
         var date = LocalDate.ofEpochDay(0);
         var startOfDay = date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
         var endOfDay = date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
-        var history = new CoinCapHistoryResponse(List.of(new CoinCapHistoryData("200.00", 0L, "2020-01-01")), 0L);
+        var history = new CoinCapHistoryResponse(List.of(new CoinCapHistoryData(LazyDecimal.of("200.00"), 0L, "2020-01-01")), 0L);
         when(coinCapClient.getAssetHistory("ethereum", "d1", startOfDay, endOfDay)).thenReturn(history);
 
         var price = service.getHistoricalPrice("eth", date);
@@ -109,7 +128,7 @@ class CoinCapServiceTest {
     @Test
     @DisplayName("When fetching asset historical price throws when history is empty")
     void getHistoricalPrice_noData() {
-        service = new CoinCapService(coinCapClient, coinCapResolver);
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
         when(coinCapResolver.resolveCoinCapId("eth")).thenReturn("ethereum");
         var date = LocalDate.ofEpochDay(0);
         var startOfDay = date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
@@ -120,4 +139,63 @@ class CoinCapServiceTest {
         assertThatThrownBy(() -> service.getHistoricalPrice("eth", date))
                 .isInstanceOf(AssetNotFoundException.class);
     }
+
+    @Test
+    @DisplayName("When fetching prices in batch it pages the listing until all symbols are found and keeps the best rank")
+    void getCurrentPrices_pagesListing() {
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
+        ReflectionTestUtils.setField(service, "batchPageSize", 2);
+        ReflectionTestUtils.setField(service, "batchMaxPages", 5);
+        // The ambiguous BTC of the second page is already resolved from the first page
+        when(coinCapClient.getAssetPrices(2, 0))
+                .thenReturn(new CoinCapAssetPrices(
+                        Map.of("BTC", LazyDecimal.of("100.00"), "ETH", LazyDecimal.of("50.00")), 2, 0L));
+        when(coinCapClient.getAssetPrices(2, 2))
+                .thenReturn(new CoinCapAssetPrices(
+                        Map.of("BTC", LazyDecimal.of("1.00"), "SOL", LazyDecimal.of("20.00")), 2, 0L));
+
+        var prices = service.getCurrentPrices(List.of("btc", "SOL"));
+
+        assertThat(prices).containsOnlyKeys("BTC", "SOL");
+        assertThat(prices.get("BTC")).isEqualByComparingTo("100.00");
+        assertThat(prices.get("SOL")).isEqualByComparingTo("20.00");
+        verify(coinCapClient, times(2)).getAssetPrices(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Current price is served from the spot price cache unless a fresh read is forced")
+    void getCurrentPrice_usesSpotPriceCache() {
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
+        when(coinCapResolver.resolveCoinCapId("BTC")).thenReturn("bitcoin");
+        var asset = new CoinCapAsset("bitcoin", "1", "BTC", "Bitcoin", LazyDecimal.of("100.00"),
+                null, null, null, null, null, null);
+        when(coinCapClient.getAsset("bitcoin")).thenReturn(new CoinCapAssetResponse(asset, 0L));
+
+        assertThat(service.getCurrentPrice("BTC")).isEqualByComparingTo("100.00");
+        assertThat(service.getCurrentPrice("btc")).isEqualByComparingTo("100.00");
+        verify(coinCapClient, times(1)).getAsset("bitcoin");
+
+        service.getCurrentPrice("BTC", true);
+        verify(coinCapClient, times(2)).getAsset("bitcoin");
+    }
+
+    @Test
+    @DisplayName("When CoinCap is unavailable reads get a recent last known price, prices that get stored never do")
+    void getCurrentPriceOrLastKnown_fallsBackToRecentPrice() {
+        service = new CoinCapService(coinCapClient, coinCapResolver, spotPriceCache);
+        spotPriceCache.put("BTC", new BigDecimal("100.00"));
+        ReflectionTestUtils.setField(spotPriceCache, "ttl", Duration.ZERO);
+        when(coinCapResolver.resolveCoinCapId("BTC")).thenReturn("bitcoin");
+        when(coinCapClient.getAsset("bitcoin"))
+                .thenThrow(CoinCapApiException.unavailable("circuit breaker is open", null));
+
+        assertThat(service.getCurrentPriceOrLastKnown("BTC")).isEqualByComparingTo("100.00");
+        assertThatThrownBy(() -> service.getCurrentPrice("BTC")).isInstanceOf(CoinCapApiException.class);
+        assertThatThrownBy(() -> service.validateAssetPrice("BTC", null)).isInstanceOf(CoinCapApiException.class);
+        assertThatThrownBy(() -> service.getCurrentPrice("BTC", true)).isInstanceOf(CoinCapApiException.class);
+
+        // Older than max-stale it is not served either
+        ReflectionTestUtils.setField(spotPriceCache, "maxStale", Duration.ZERO);
+        assertThatThrownBy(() -> service.getCurrentPriceOrLastKnown("BTC")).isInstanceOf(CoinCapApiException.class);
+    }
 }
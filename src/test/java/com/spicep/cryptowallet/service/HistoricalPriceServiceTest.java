@@ -0,0 +1,102 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import com.spicep.cryptowallet.repository.HistoricalPriceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoricalPriceServiceTest {
+
+    @Mock
+    private HistoricalPriceRepository historicalPriceRepository;
+    @Mock
+    private PriceRollupService priceRollupService;
+    @Mock
+    private CoinCapService coinCapService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HistoricalPriceService historicalPriceService;
+
+    private final LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        historicalPriceService = new HistoricalPriceService(historicalPriceRepository, priceRollupService,
+                coinCapService, meterRegistry);
+        ReflectionTestUtils.setField(historicalPriceService, "localHistoryEnabled", true);
+        ReflectionTestUtils.setField(historicalPriceService, "minDailySamples", 24);
+    }
+
+    @Test
+    @DisplayName("A stored price is served without calling CoinCap")
+    void getHistoricalPrice_servesStoredPrice() {
+        var stored = HistoricalPrice.builder().symbol("BTC").priceDate(yesterday).price(new BigDecimal("42000.5"))
+                .build();
+        when(historicalPriceRepository.findBySymbolAndPriceDate("BTC", yesterday)).thenReturn(Optional.of(stored));
+
+        var price = historicalPriceService.getHistoricalPrice("btc", yesterday);
+
+        assertThat(price).isEqualByComparingTo("42000.5");
+        verifyNoInteractions(coinCapService, priceRollupService);
+        assertThat(meterRegistry.counter("historical.price.lookups", "source", "stored").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A day covered by our own price history is served from the daily rollup")
+    void getHistoricalPrice_servesRollup() {
+        when(historicalPriceRepository.findBySymbolAndPriceDate("BTC", yesterday)).thenReturn(Optional.empty());
+        when(priceRollupService.findDailyAveragePrice("BTC", yesterday, 24))
+                .thenReturn(Optional.of(new BigDecimal("41000")));
+
+        var price = historicalPriceService.getHistoricalPrice("BTC", yesterday);
+
+        assertThat(price).isEqualByComparingTo("41000");
+        verifyNoInteractions(coinCapService);
+        verify(historicalPriceRepository, never()).insertIfAbsent(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("On a miss the price is fetched from CoinCap and stored for the next simulation")
+    void getHistoricalPrice_fetchesAndStores() {
+        when(historicalPriceRepository.findBySymbolAndPriceDate("BTC", yesterday)).thenReturn(Optional.empty());
+        when(priceRollupService.findDailyAveragePrice("BTC", yesterday, 24)).thenReturn(Optional.empty());
+        when(coinCapService.getHistoricalPrice("BTC", yesterday)).thenReturn(new BigDecimal("40000"));
+
+        var price = historicalPriceService.getHistoricalPrice("BTC", yesterday);
+
+        assertThat(price).isEqualByComparingTo("40000");
+        verify(historicalPriceRepository).insertIfAbsent("BTC", yesterday, new BigDecimal("40000"));
+        assertThat(meterRegistry.counter("historical.price.lookups", "source", "coincap").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Today's price always comes from CoinCap and is never stored")
+    void getHistoricalPrice_todayGoesToCoinCap() {
+        var today = LocalDate.now(ZoneOffset.UTC);
+        when(coinCapService.getHistoricalPrice("BTC", today)).thenReturn(new BigDecimal("43000"));
+
+        var price = historicalPriceService.getHistoricalPrice("BTC", today);
+
+        assertThat(price).isEqualByComparingTo("43000");
+        verifyNoInteractions(historicalPriceRepository);
+        verify(priceRollupService, never()).findDailyAveragePrice(any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,61 @@
+package com.spicep.cryptowallet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private PriceHistoryPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new PriceHistoryPartitionManager(jdbcTemplate);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "monthsAhead", 2);
+    }
+
+    @Test
+    @DisplayName("Creates only the missing monthly partitions ahead of the current month")
+    void maintainPartitions_createsMissingPartitions() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("price_history_default", "price_history_2025_01", "price_history_2025_02"));
+
+        manager.maintainPartitions(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS price_history_2025_03 PARTITION OF price_history "
+                + "FOR VALUES FROM ('2025-03-01') TO ('2025-04-01')");
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+
+    @Test
+    @DisplayName("Drops partitions older than the retention instead of deleting rows")
+    void maintainPartitions_dropsExpiredPartitions() {
+        ReflectionTestUtils.setField(manager, "retentionMonths", 2);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("price_history_default",
+                "price_history_2024_10", "price_history_2024_11", "price_history_2024_12", "price_history_2025_01",
+                "price_history_2025_02", "price_history_2025_03"));
+
+        manager.maintainPartitions(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS price_history_2024_10");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS price_history_2024_11");
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE"));
+    }
+}
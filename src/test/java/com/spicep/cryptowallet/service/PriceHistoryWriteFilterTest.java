@@ -0,0 +1,75 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceHistoryWriteFilterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PriceHistoryWriteFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new PriceHistoryWriteFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "minChangePercent", BigDecimal.ZERO);
+        ReflectionTestUtils.setField(filter, "heartbeat", Duration.ofMinutes(15));
+        filter.registerMetrics();
+    }
+
+    @Test
+    @DisplayName("Skips prices that did not move at the stored precision and reports the suppression ratio")
+    void shouldWrite_skipsUnchangedPrice() {
+        assertThat(filter.shouldWrite(row("usdt", "1.0001", NOW))).isTrue();
+        assertThat(filter.shouldWrite(row("USDT", "1.0049", NOW.plusMinutes(1)))).isFalse();
+        assertThat(filter.shouldWrite(row("USDT", "1.01", NOW.plusMinutes(2)))).isTrue();
+        assertThat(filter.shouldWrite(row("USDT", "1.01", NOW.plusMinutes(3)))).isFalse();
+
+        assertThat(meterRegistry.get("price.history.suppression.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Writes a heartbeat row once the interval passed even if the price did not move")
+    void shouldWrite_writesHeartbeat() {
+        assertThat(filter.shouldWrite(row("BTC", "100.00", NOW))).isTrue();
+        assertThat(filter.shouldWrite(row("BTC", "100.00", NOW.plusMinutes(14)))).isFalse();
+        assertThat(filter.shouldWrite(row("BTC", "100.00", NOW.plusMinutes(15)))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Skips moves below the minimum change percentage, compared with the last written price")
+    void shouldWrite_appliesThreshold() {
+        ReflectionTestUtils.setField(filter, "minChangePercent", new BigDecimal("1"));
+
+        assertThat(filter.shouldWrite(row("ETH", "100.00", NOW))).isTrue();
+        assertThat(filter.shouldWrite(row("ETH", "100.50", NOW.plusMinutes(1)))).isFalse();
+        assertThat(filter.shouldWrite(row("ETH", "100.99", NOW.plusMinutes(2)))).isFalse();
+        assertThat(filter.shouldWrite(row("ETH", "101.00", NOW.plusMinutes(3)))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Writes everything when disabled")
+    void shouldWrite_disabled() {
+        ReflectionTestUtils.setField(filter, "enabled", false);
+
+        assertThat(filter.shouldWrite(row("BTC", "100.00", NOW))).isTrue();
+        assertThat(filter.shouldWrite(row("BTC", "100.00", NOW))).isTrue();
+    }
+
+    private static PriceHistory row(String symbol, String price, LocalDateTime createdAt) {
+        return PriceHistory.builder().symbol(symbol).price(new BigDecimal(price)).createdAt(createdAt).build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriceHistoryWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new PriceHistoryWriter(jdbcTemplate, meterRegistry, new PriceHistoryWriteFilter(meterRegistry));
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+        ReflectionTestUtils.setField(writer, "maxBuffered", 100);
+    }
+
+    @Test
+    @DisplayName("When the buffer reaches the batch size it writes all rows with a single multi-row insert")
+    void append_flushesFullBatch() {
+        writer.append(PriceHistory.create("BTC", new BigDecimal("100.00")));
+        verifyNoInteractions(jdbcTemplate);
+
+        writer.append(PriceHistory.create("ETH", new BigDecimal("50.00")));
+
+        var sql = ArgumentCaptor.forClass(String.class);
+        var args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(sql.capture(), args.capture());
+        assertThat(sql.getValue()).isEqualTo(
+                "INSERT INTO price_history (id, symbol, price, created_at) VALUES (?, ?, ?, ?), (?, ?, ?, ?)");
+        assertThat(args.getValue()).hasSize(8).contains("BTC", "ETH");
+    }
+
+    @Test
+    @DisplayName("Flushing splits the buffer into batches and reports the written rows")
+    void flush_writesInBatches() {
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        for (int i = 0; i < 3; i++) {
+            writer.append(PriceHistory.create("BTC", new BigDecimal("100.00")));
+        }
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+
+        var written = writer.flush();
+
+        assertThat(written).isEqualTo(3);
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Rows of a failed flush are kept and written on the next flush")
+    void flush_keepsRowsOnFailure() {
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        writer.append(PriceHistory.create("BTC", new BigDecimal("100.00")));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(1);
+
+        assertThat(writer.flush()).isZero();
+        assertThat(writer.flush()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Rows the database rejects are dropped instead of being retried forever")
+    void flush_dropsRejectedRows() {
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        writer.append(PriceHistory.create("BTC", new BigDecimal("100.00")));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThat(writer.flush()).isZero();
+        assertThat(writer.flush()).isZero();
+
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        assertThat(meterRegistry.counter("price.history.rows.dropped", "reason", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A full buffer drops its oldest rows")
+    void append_dropsOldestRowsWhenFull() {
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        ReflectionTestUtils.setField(writer, "maxBuffered", 2);
+        writer.append(PriceHistory.create("BTC", new BigDecimal("100.00")));
+        writer.append(PriceHistory.create("ETH", new BigDecimal("50.00")));
+        writer.append(PriceHistory.create("SOL", new BigDecimal("20.00")));
+
+        writer.flush();
+
+        var args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(anyString(), args.capture());
+        assertThat(args.getValue()).contains("ETH", "SOL").doesNotContain("BTC");
+        assertThat(meterRegistry.counter("price.history.rows.dropped", "reason", "overflow").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("While the database is down appends only trigger one flush per full batch")
+    void append_flushesOncePerBatchWhileFailing() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        for (int i = 0; i < 6; i++) {
+            writer.append(PriceHistory.create("BTC" + i, new BigDecimal("100.00")));
+        }
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+    }
+}
@@ -0,0 +1,102 @@
+package com.spicep.cryptowallet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceRefreshPlannerTest {
+
+    // Best ranked first: 2 hot, 3 warm, 5 cold with the percentages below
+    private static final List<String> RANKED = List.of("BTC", "ETH", "SOL", "XRP", "ADA", "DOT", "LTC", "XLM", "ATOM",
+            "NEAR");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private PriceRefreshPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner = new PriceRefreshPlanner(jdbcTemplate);
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "hotPercent", 20);
+        ReflectionTestUtils.setField(planner, "warmPercent", 30);
+        ReflectionTestUtils.setField(planner, "warmInterval", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(planner, "coldInterval", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(planner, "rankingRefresh", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(planner, "volatilityWindow", Duration.ofHours(24));
+        ReflectionTestUtils.setField(planner, "requestsPerMinute", 300);
+        ReflectionTestUtils.setField(planner, "cycleInterval", 60_000L);
+    }
+
+    @Test
+    @DisplayName("Refreshes hot symbols every cycle and warm and cold symbols at their own interval, best ranked first")
+    void dueSymbols_followsTiers() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Timestamp.class))).thenReturn(RANKED);
+        var symbols = RANKED.stream().sorted().toList();
+        var start = Instant.parse("2025-01-01T00:00:00Z");
+
+        assertThat(planner.dueSymbols(symbols, start)).containsExactlyElementsOf(RANKED);
+        symbols.forEach(symbol -> planner.markRefreshed(symbol, start));
+        assertThat(planner.tierOf("ETH")).isEqualTo(PriceRefreshPlanner.Tier.HOT);
+        assertThat(planner.tierOf("ADA")).isEqualTo(PriceRefreshPlanner.Tier.WARM);
+        assertThat(planner.tierOf("NEAR")).isEqualTo(PriceRefreshPlanner.Tier.COLD);
+
+        // A symbol added after the ranking counts as hot and goes first. The next cycle starts a little less than
+        // an interval later (scheduler and database jitter), hot symbols are due all the same
+        var withNew = new ArrayList<>(symbols);
+        withNew.add("PEPE");
+        assertThat(planner.dueSymbols(withNew, start.plusMillis(59_990))).containsExactly("PEPE", "BTC", "ETH");
+        assertThat(planner.dueSymbols(symbols, start.plus(Duration.ofMinutes(5)).minusMillis(10)))
+                .containsExactly("BTC", "ETH", "SOL", "XRP", "ADA");
+        assertThat(planner.dueSymbols(symbols, start.plus(Duration.ofMinutes(15)))).containsExactlyElementsOf(RANKED);
+        // Ranked once at the start and once more after the ranking refresh interval
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(String.class), any(Timestamp.class));
+    }
+
+    @Test
+    @DisplayName("Symbols that missed a whole turn go before better ranked ones, so a small budget cannot starve them")
+    void dueSymbols_starvingSymbolsFirst() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Timestamp.class))).thenReturn(RANKED);
+        var start = Instant.parse("2025-01-01T00:00:00Z");
+        planner.dueSymbols(RANKED, start);
+        var lastCycle = start.plus(Duration.ofMinutes(14));
+        RANKED.stream().filter(symbol -> !symbol.equals("NEAR"))
+                .forEach(symbol -> planner.markRefreshed(symbol, lastCycle));
+        // NEAR (cold) was last refreshed 30 minutes before the cycle below
+        planner.markRefreshed("NEAR", start.minus(Duration.ofMinutes(15)));
+
+        assertThat(planner.dueSymbols(RANKED, start.plus(Duration.ofMinutes(15)))).containsExactly("NEAR", "BTC", "ETH");
+    }
+
+    @Test
+    @DisplayName("Derives the per-cycle request budget from the per-minute budget, disabled it refreshes everything")
+    void requestBudget_perCycle() {
+        assertThat(planner.requestBudget()).isEqualTo(300);
+        ReflectionTestUtils.setField(planner, "cycleInterval", 10_000L);
+        assertThat(planner.requestBudget()).isEqualTo(50);
+
+        ReflectionTestUtils.setField(planner, "enabled", false);
+        assertThat(planner.requestBudget()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(planner.dueSymbols(RANKED, Instant.now())).isSameAs(RANKED);
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
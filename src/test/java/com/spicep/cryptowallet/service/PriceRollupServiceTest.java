@@ -0,0 +1,151 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.enums.PriceResolution;
+import com.spicep.cryptowallet.exception.PriceHistoryValidationException;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceRollupServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    private PriceRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PriceRollupService(jdbcTemplate, priceHistoryRepository);
+        ReflectionTestUtils.setField(service, "rollupEnabled", true);
+        ReflectionTestUtils.setField(service, "lag", Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("A year of history is read from the daily rollup table")
+    void getPriceHistory_readsDailyTableForLongRanges() {
+        var to = LocalDateTime.of(2025, 1, 1, 12, 30);
+
+        service.getPriceHistory("btc", to.minusYears(1), to, null);
+
+        verify(jdbcTemplate).query(contains("FROM price_history_daily"), any(RowMapper.class), eq("BTC"),
+                eq(Timestamp.valueOf(toUtc(to.minusYears(1)).truncatedTo(ChronoUnit.DAYS))),
+                eq(Timestamp.valueOf(toUtc(to))));
+        verifyNoInteractions(priceHistoryRepository);
+    }
+
+    @Test
+    @DisplayName("Daily candles start at UTC midnight, returned in the application zone")
+    @SuppressWarnings("unchecked")
+    void getPriceHistory_mapsDailyBucketsFromUtc() throws SQLException {
+        var to = LocalDateTime.of(2025, 1, 1, 12, 30);
+        var rs = mock(ResultSet.class);
+        when(rs.getTimestamp("bucket_start")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 12, 31, 0, 0)));
+        when(jdbcTemplate.query(contains("FROM price_history_daily"), any(RowMapper.class), any(), any(), any()))
+                .thenAnswer(invocation -> List.of(invocation.getArgument(1, RowMapper.class).mapRow(rs, 0)));
+
+        var candles = service.getPriceHistory("BTC", to.minusYears(1), to, PriceResolution.DAY);
+
+        var expected = LocalDateTime.of(2024, 12, 31, 0, 0).atOffset(ZoneOffset.UTC)
+                .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        assertThat(candles).singleElement().satisfies(candle -> assertThat(candle.time()).isEqualTo(expected));
+    }
+
+    @Test
+    @DisplayName("Short ranges are read from raw price history")
+    void getPriceHistory_readsRawRowsForShortRanges() {
+        var to = LocalDateTime.of(2025, 1, 1, 12, 0);
+        var row = PriceHistory.builder().symbol("BTC").price(new BigDecimal("100.00")).createdAt(to).build();
+        when(priceHistoryRepository.findBySymbolAndCreatedAtBetweenOrderByCreatedAt("BTC", to.minusHours(1), to))
+                .thenReturn(List.of(row));
+
+        var candles = service.getPriceHistory("BTC", to.minusHours(1), to, null);
+
+        assertThat(candles).singleElement().satisfies(candle -> {
+            assertThat(candle.open()).isEqualByComparingTo("100.00");
+            assertThat(candle.close()).isEqualByComparingTo("100.00");
+            assertThat(candle.samples()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    @DisplayName("An explicit resolution wins over the range based choice")
+    void getPriceHistory_usesRequestedResolution() {
+        var to = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        service.getPriceHistory("BTC", to.minusYears(1), to, PriceResolution.HOUR);
+
+        verify(jdbcTemplate).query(contains("FROM price_history_hourly"), any(RowMapper.class), eq("BTC"), any(), any());
+    }
+
+    @Test
+    @DisplayName("Rejects ranges that end before they start")
+    void getPriceHistory_rejectsInvalidRange() {
+        var now = LocalDateTime.now();
+
+        assertThatThrownBy(() -> service.getPriceHistory("BTC", now, now.minusDays(1), null))
+                .isInstanceOf(PriceHistoryValidationException.class);
+    }
+
+    @Test
+    @DisplayName("Rollup recomputes buckets of rows inserted after the watermark and moves the watermark forward")
+    void rollup_movesWatermark() {
+        var watermark = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        var upTo = Timestamp.valueOf(LocalDateTime.now().minusMinutes(5));
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), eq(Timestamp.class), eq("price_history")))
+                .thenReturn(watermark);
+        when(jdbcTemplate.queryForObject(contains("now()"), eq(Timestamp.class), eq(300L))).thenReturn(upTo);
+
+        service.rollup();
+
+        verify(jdbcTemplate).update(contains("INSERT INTO price_history_hourly"), eq(watermark), eq(upTo));
+        var zone = ZoneId.systemDefault().getId();
+        verify(jdbcTemplate).update(contains("INSERT INTO price_history_daily"), eq(zone), eq(watermark), eq(upTo),
+                eq(zone), eq(zone));
+        verify(jdbcTemplate).update(contains("UPDATE price_rollup_watermarks"), eq(upTo), eq("price_history"));
+    }
+
+    @Test
+    @DisplayName("Rollup is skipped while nothing can have been inserted after the watermark")
+    void rollup_skipsWhenWatermarkIsCurrent() {
+        var watermark = Timestamp.valueOf(LocalDateTime.now().minusMinutes(5));
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), eq(Timestamp.class), eq("price_history")))
+                .thenReturn(watermark);
+        when(jdbcTemplate.queryForObject(contains("now()"), eq(Timestamp.class), eq(300L))).thenReturn(watermark);
+
+        service.rollup();
+
+        verify(jdbcTemplate, never()).update(contains("INSERT INTO price_history_hourly"), any(), any());
+        verify(jdbcTemplate, never()).update(contains("UPDATE price_rollup_watermarks"), any(), any());
+    }
+
+    private static LocalDateTime toUtc(LocalDateTime local) {
+        return local.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+}
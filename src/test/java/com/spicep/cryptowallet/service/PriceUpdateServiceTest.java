@@ -1,18 +1,28 @@
 package com.spicep.cryptowallet.service;
 
 import com.spicep.cryptowallet.entity.Asset;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
 import com.spicep.cryptowallet.repository.AssetRepository;
-import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -23,9 +33,17 @@ class PriceUpdateServiceTest {
     @Mock
     private AssetRepository assetRepository;
     @Mock
-    private PriceHistoryRepository priceHistoryRepository;
+    private WalletRepository walletRepository;
+    @Mock
+    private PriceHistoryWriter priceHistoryWriter;
     @Mock
     private CoinCapService coinCapService;
+    @Mock
+    private SchedulerLease schedulerLease;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Tiers disabled: every symbol is due and the request budget is unlimited
+    private final PriceRefreshPlanner refreshPlanner = new PriceRefreshPlanner(mock(JdbcTemplate.class));
 
     private PriceUpdateService service;
 
@@ -33,8 +51,9 @@ class PriceUpdateServiceTest {
     @DisplayName("When updating prices it should fetch distinct symbols and update assets and history")
     void updatePrices_updatesAssets() {
         Executor executor = Runnable::run; // fast workaround to run threads synchronously due 2 lack of time :(
-        service = new PriceUpdateService(assetRepository, priceHistoryRepository, coinCapService, executor);
+        service = newService(executor, refreshPlanner);
         ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
 
         when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH"));
 
@@ -42,13 +61,16 @@ class PriceUpdateServiceTest {
         var eth = Asset.builder().symbol("ETH").quantity(new BigDecimal("2")).currentPrice(new BigDecimal("50")).build();
         when(assetRepository.findBySymbolIgnoreCase("BTC")).thenReturn(List.of(btc));
         when(assetRepository.findBySymbolIgnoreCase("ETH")).thenReturn(List.of(eth));
-        when(coinCapService.getCurrentPrice("BTC")).thenReturn(new BigDecimal("100"));
-        when(coinCapService.getCurrentPrice("ETH")).thenReturn(new BigDecimal("75"));
+        when(coinCapService.getCurrentPrice("BTC", true)).thenReturn(new BigDecimal("100"));
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
 
         service.updatePrices();
 
-        verify(priceHistoryRepository, times(2)).save(any());
+        verify(priceHistoryWriter, times(2)).append(any());
+        verify(priceHistoryWriter).flush();
         verify(assetRepository, times(2)).saveAll(any());
+        verify(walletRepository).refreshTotalValues("BTC");
+        verify(walletRepository).refreshTotalValues("ETH");
         assertThat(btc.getCurrentPrice()).isEqualByComparingTo("100");
         assertThat(eth.getCurrentPrice()).isEqualByComparingTo("75");
     }
@@ -57,11 +79,290 @@ class PriceUpdateServiceTest {
     @DisplayName("When updating prices has flag set to false it should not start")
     void updatePrices_disabled() {
         Executor executor = Runnable::run;
-        service = new PriceUpdateService(assetRepository, priceHistoryRepository, coinCapService, executor);
+        service = newService(executor, refreshPlanner);
         ReflectionTestUtils.setField(service, "priceUpdateEnabled", false);
 
         service.updatePrices();
 
         verify(assetRepository, never()).findDistinctSymbols();
     }
+
+    @Test
+    @DisplayName("When another instance holds the lease it should skip the cycle")
+    void updatePrices_leaseHeldElsewhere() {
+        Executor executor = Runnable::run;
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(false);
+
+        service.updatePrices();
+
+        verify(assetRepository, never()).findDistinctSymbols();
+        verifyNoInteractions(coinCapService);
+    }
+
+    @Test
+    @DisplayName("When the executor rejects a symbol it should count it and retry it in the same cycle")
+    void updatePrices_retriesRejectedSymbols() {
+        var submissions = new AtomicInteger();
+        Executor executor = task -> {
+            if (submissions.getAndIncrement() == 0) {
+                throw new RejectedExecutionException("queue full");
+            }
+            task.run();
+        };
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH"));
+        when(coinCapService.getCurrentPrice("BTC", true)).thenReturn(new BigDecimal("100"));
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
+
+        service.updatePrices();
+
+        verify(assetRepository).updatePriceBySymbol(eq("BTC"), eq(new BigDecimal("100")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(assetRepository).updatePriceBySymbol(eq("ETH"), eq(new BigDecimal("75")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "retried").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("price.update.symbols").tag("outcome", "dropped").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("When a symbol keeps failing it should be retried once and then counted as dropped")
+    void updatePrices_dropsSymbolFailingTwice() {
+        Executor executor = Runnable::run;
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC"));
+        when(coinCapService.getCurrentPrice("BTC", true)).thenThrow(CoinCapApiException.unavailable("down", null));
+
+        service.updatePrices();
+
+        verify(coinCapService, times(2)).getCurrentPrice("BTC", true);
+        verify(priceHistoryWriter).flush();
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "failed").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When the request budget is spent it should defer the remaining symbols to a later cycle")
+    void updatePrices_defersSymbolsOverBudget() {
+        Executor executor = Runnable::run;
+        var planner = mock(PriceRefreshPlanner.class);
+        service = newService(executor, planner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH", "SOL"));
+        when(planner.dueSymbols(eq(List.of("BTC", "ETH", "SOL")), any())).thenReturn(List.of("ETH", "BTC"));
+        when(planner.requestBudget()).thenReturn(1);
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
+
+        service.updatePrices();
+
+        verify(coinCapService, never()).getCurrentPrice("BTC", true);
+        verify(planner).markRefreshed(eq("ETH"), any());
+        verify(planner, never()).markRefreshed(eq("BTC"), any());
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "deferred").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When batch refresh is enabled it should only fetch single prices for symbols missing from the batch")
+    void updatePrices_batchWithFallback() {
+        Executor executor = Runnable::run;
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+        ReflectionTestUtils.setField(service, "batchEnabled", true);
+
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH"));
+
+        var btc = Asset.builder().symbol("BTC").quantity(new BigDecimal("1")).currentPrice(new BigDecimal("90")).build();
+        var eth = Asset.builder().symbol("ETH").quantity(new BigDecimal("2")).currentPrice(new BigDecimal("50")).build();
+        when(assetRepository.findBySymbolIgnoreCase("BTC")).thenReturn(List.of(btc));
+        when(assetRepository.findBySymbolIgnoreCase("ETH")).thenReturn(List.of(eth));
+        when(coinCapService.getCurrentPrices(List.of("BTC", "ETH"))).thenReturn(Map.of("BTC", new BigDecimal("100")));
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
+
+        service.updatePrices();
+
+        verify(coinCapService, never()).getCurrentPrice("BTC", true);
+        assertThat(btc.getCurrentPrice()).isEqualByComparingTo("100");
+        assertThat(eth.getCurrentPrice()).isEqualByComparingTo("75");
+    }
+
+    @Test
+    @DisplayName("When bulk write is enabled it should update assets with one statement per symbol and record db time")
+    void updatePrices_bulkWrite() {
+        Executor executor = Runnable::run;
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC"));
+        when(coinCapService.getCurrentPrice("BTC", true)).thenReturn(new BigDecimal("100"));
+        when(assetRepository.updatePriceBySymbol(eq("BTC"), eq(new BigDecimal("100")),
+                any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(3);
+
+        service.updatePrices();
+
+        verify(assetRepository, never()).findBySymbolIgnoreCase(anyString());
+        verify(assetRepository, never()).saveAll(any());
+        verifyNoInteractions(walletRepository);
+        assertThat(meterRegistry.get("price.update.db.time").tag("mode", "bulk").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When a symbol update hangs it should abandon it at the symbol timeout, never let it write its late "
+            + "price and refresh the symbol first next cycle")
+    void updatePrices_timesOutHungSymbol() {
+        // First cycle on threads of their own so a hung update can be left behind, the second one inline
+        var firstCycle = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (firstCycle.get()) {
+                Thread.ofVirtual().start(task);
+            } else {
+                task.run();
+            }
+        };
+        var planner = mock(PriceRefreshPlanner.class);
+        service = newService(executor, planner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+        ReflectionTestUtils.setField(service, "symbolTimeout", Duration.ofMillis(100));
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+        when(planner.requestBudget()).thenReturn(Integer.MAX_VALUE);
+
+        // The hung call ignores the interrupt and returns its price once released, like a blocking read would
+        var hung = new CountDownLatch(1);
+        var interrupted = new AtomicBoolean();
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH", "SOL"));
+        when(planner.dueSymbols(eq(List.of("BTC", "ETH", "SOL")), any()))
+                .thenReturn(List.of("BTC", "ETH"), List.of("SOL"));
+        when(coinCapService.getCurrentPrice("BTC", true)).thenAnswer(invocation -> {
+            while (true) {
+                try {
+                    hung.await();
+                    return new BigDecimal("100");
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        }).thenReturn(new BigDecimal("101"));
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
+        when(coinCapService.getCurrentPrice("SOL", true)).thenReturn(new BigDecimal("20"));
+
+        service.updatePrices();
+
+        verify(assetRepository).updatePriceBySymbol(eq("ETH"), any(),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(planner, never()).markRefreshed(eq("BTC"), any());
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "timed-out").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "carried-over").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find("price.update.symbols").tag("outcome", "retried").counter()).isNull();
+        assertThat(interrupted).isTrue();
+
+        // BTC is not due according to the planner, it is refreshed anyway and ahead of SOL
+        firstCycle.set(false);
+        startedOneIntervalAgo(service);
+        service.updatePrices();
+        hung.countDown();
+
+        // The abandoned update now has its price, it must not overwrite the newer one
+        verify(assetRepository, after(300).never()).updatePriceBySymbol(eq("BTC"), eq(new BigDecimal("100")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        assertThat(meterRegistry.find("price.update.symbols").tag("outcome", "failed").counter()).isNull();
+
+        var inOrder = inOrder(coinCapService);
+        inOrder.verify(coinCapService, times(2)).getCurrentPrice("BTC", true);
+        inOrder.verify(coinCapService).getCurrentPrice("SOL", true);
+        verify(assetRepository).updatePriceBySymbol(eq("BTC"), eq(new BigDecimal("101")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        assertThat(meterRegistry.get("price.update.cycle.duration").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("price.update.cycle.lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When the deadline passes it should finish the cycle and carry the symbols not yet updated over")
+    void updatePrices_carriesOverSymbolsPastDeadline() {
+        // The first cycle's tasks never run, as if the executor were saturated
+        var saturated = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (!saturated.get()) {
+                task.run();
+            }
+        };
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        ReflectionTestUtils.setField(service, "bulkWriteEnabled", true);
+        ReflectionTestUtils.setField(service, "cycleDeadline", Duration.ofMillis(200));
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of("BTC", "ETH"));
+
+        service.updatePrices();
+
+        verifyNoInteractions(coinCapService);
+        verify(priceHistoryWriter).flush();
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "carried-over").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.find("price.update.symbols").tag("outcome", "timed-out").counter()).isNull();
+
+        saturated.set(false);
+        when(coinCapService.getCurrentPrice("BTC", true)).thenReturn(new BigDecimal("100"));
+        when(coinCapService.getCurrentPrice("ETH", true)).thenReturn(new BigDecimal("75"));
+        startedOneIntervalAgo(service);
+        service.updatePrices();
+
+        verify(assetRepository).updatePriceBySymbol(eq("BTC"), eq(new BigDecimal("100")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(assetRepository).updatePriceBySymbol(eq("ETH"), eq(new BigDecimal("75")),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        assertThat(meterRegistry.get("price.update.symbols").tag("outcome", "carried-over").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("When the scheduler fires a missed cycle right after the previous one it should skip it")
+    void updatePrices_skipsBackToBackCycle() {
+        Executor executor = Runnable::run;
+        service = newService(executor, refreshPlanner);
+        ReflectionTestUtils.setField(service, "priceUpdateEnabled", true);
+        when(schedulerLease.tryAcquire(eq(PriceUpdateService.LEASE_NAME), any())).thenReturn(true);
+        when(assetRepository.findDistinctSymbols()).thenReturn(List.of());
+
+        service.updatePrices();
+        service.updatePrices();
+
+        verify(assetRepository, times(1)).findDistinctSymbols();
+        assertThat(meterRegistry.find("price.update.cycle.lag").timer()).isNull();
+    }
+
+    // As if the previous cycle started on schedule, one interval before now
+    private static void startedOneIntervalAgo(PriceUpdateService priceUpdateService) {
+        ReflectionTestUtils.setField(priceUpdateService, "lastCycleStartNanos",
+                System.nanoTime() - Duration.ofMinutes(1).toNanos());
+    }
+
+    private PriceUpdateService newService(Executor executor, PriceRefreshPlanner planner) {
+        var priceUpdateService = new PriceUpdateService(assetRepository, walletRepository, priceHistoryWriter,
+                coinCapService, executor, meterRegistry, schedulerLease, planner);
+        ReflectionTestUtils.setField(priceUpdateService, "cycleInterval", 60_000L);
+        ReflectionTestUtils.setField(priceUpdateService, "cycleDeadline", Duration.ofSeconds(45));
+        ReflectionTestUtils.setField(priceUpdateService, "symbolTimeout", Duration.ofSeconds(15));
+        ReflectionTestUtils.setField(priceUpdateService, "maxConcurrency", 10);
+        priceUpdateService.initUpdateSlots();
+        return priceUpdateService;
+    }
 }
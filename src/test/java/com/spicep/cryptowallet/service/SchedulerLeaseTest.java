@@ -0,0 +1,78 @@
+package com.spicep.cryptowallet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchedulerLeaseTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    private SchedulerLease lease;
+
+    @BeforeEach
+    void setUp() {
+        lease = new SchedulerLease(jdbcTemplate);
+        ReflectionTestUtils.setField(lease, "enabled", true);
+        ReflectionTestUtils.setField(lease, "ttl", Duration.ofMinutes(3));
+    }
+
+    @Test
+    @DisplayName("Runs the job only when the lease row was taken or renewed, and skips when the database fails")
+    void tryAcquire_followsLeaseRow() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("price-update"), anyString(), eq(180_000L)))
+                .thenReturn(1, 0)
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThat(lease.tryAcquire("price-update", MINUTE)).isTrue();
+        assertThat(lease.tryAcquire("price-update", MINUTE)).isFalse();
+        assertThat(lease.tryAcquire("price-update", MINUTE)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Releases only the leases it holds on shutdown, and never touches the database when disabled")
+    void releaseAll_releasesHeldLeases() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("held"), anyString(), any())).thenReturn(1);
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("other"), anyString(), any())).thenReturn(0);
+        lease.tryAcquire("held", MINUTE);
+        lease.tryAcquire("other", MINUTE);
+
+        lease.releaseAll();
+
+        verify(jdbcTemplate).update(startsWith("UPDATE"), eq("held"), anyString());
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE"), eq("other"), anyString());
+
+        var disabled = new SchedulerLease(jdbcTemplate);
+        assertThat(disabled.tryAcquire("held", MINUTE)).isTrue();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("The lease lives at least three runs of a job, so it never expires between two runs")
+    void tryAcquire_outlivesLongIntervals() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("price-update"), anyString(), any())).thenReturn(1);
+
+        lease.tryAcquire("price-update", Duration.ofMinutes(5));
+
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq("price-update"), anyString(), eq(900_000L));
+    }
+}
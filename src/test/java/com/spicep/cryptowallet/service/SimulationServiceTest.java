@@ -2,6 +2,7 @@ package com.spicep.cryptowallet.service;
 
 import com.spicep.cryptowallet.dto.request.SimulatePortfolioAssetInput;
 import com.spicep.cryptowallet.dto.request.SimulatePortfolioRequest;
+import com.spicep.cryptowallet.exception.CoinCapApiException;
 import com.spicep.cryptowallet.exception.SimulationValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +19,8 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,12 +28,14 @@ class SimulationServiceTest {
 
     @Mock
     private CoinCapService coinCapService;
+    @Mock
+    private HistoricalPriceService historicalPriceService;
 
     private SimulationService simulationService;
 
     @BeforeEach
     void setup() {
-        simulationService = new SimulationService(coinCapService);
+        simulationService = new SimulationService(coinCapService, historicalPriceService, Runnable::run);
     }
 
     @Test
@@ -51,7 +56,7 @@ class SimulationServiceTest {
         var request = new SimulatePortfolioRequest(LocalDate.now(),
                 List.of(new SimulatePortfolioAssetInput("BTC", BigDecimal.ONE, new BigDecimal("100"))));
 
-        when(coinCapService.getCurrentPrice(anyString())).thenReturn(new BigDecimal("150"));
+        when(coinCapService.getCurrentPriceOrLastKnown(anyString())).thenReturn(new BigDecimal("150"));
 
         var result = simulationService.simulatePortfolio(request);
 
@@ -69,8 +74,8 @@ class SimulationServiceTest {
         var request = new SimulatePortfolioRequest(date,
                 List.of(new SimulatePortfolioAssetInput("ETH", BigDecimal.ONE, null)));
 
-        when(coinCapService.getHistoricalPrice("ETH", date)).thenReturn(new BigDecimal("50"));
-        when(coinCapService.getCurrentPrice("ETH")).thenReturn(new BigDecimal("100"));
+        when(historicalPriceService.getHistoricalPrice("ETH", date)).thenReturn(new BigDecimal("50"));
+        when(coinCapService.getCurrentPriceOrLastKnown("ETH")).thenReturn(new BigDecimal("100"));
 
         var result = simulationService.simulatePortfolio(request);
 
@@ -78,4 +83,42 @@ class SimulationServiceTest {
         assertThat(result.bestPerformance()).isEqualByComparingTo("100.00");
         assertThat(result.worstPerformance()).isEqualByComparingTo("100.00");
     }
+
+    @Test
+    @DisplayName("Simulator fetches prices once per distinct symbol")
+    void simulatePortfolio_deduplicatesSymbols() {
+        ReflectionTestUtils.setField(simulationService, "useMarketPrice", true);
+
+        var date = LocalDate.of(2020, 1, 1);
+        var request = new SimulatePortfolioRequest(date, List.of(
+                new SimulatePortfolioAssetInput("btc", BigDecimal.ONE, null),
+                new SimulatePortfolioAssetInput("BTC", BigDecimal.TWO, null),
+                new SimulatePortfolioAssetInput("ETH", BigDecimal.ONE, null)));
+
+        when(historicalPriceService.getHistoricalPrice("BTC", date)).thenReturn(new BigDecimal("50"));
+        when(historicalPriceService.getHistoricalPrice("ETH", date)).thenReturn(new BigDecimal("10"));
+        when(coinCapService.getCurrentPriceOrLastKnown("BTC")).thenReturn(new BigDecimal("100"));
+        when(coinCapService.getCurrentPriceOrLastKnown("ETH")).thenReturn(new BigDecimal("5"));
+
+        var result = simulationService.simulatePortfolio(request);
+
+        assertThat(result.total()).isEqualByComparingTo("305.00");
+        verify(historicalPriceService, times(1)).getHistoricalPrice("BTC", date);
+        verify(coinCapService, times(1)).getCurrentPriceOrLastKnown("BTC");
+    }
+
+    @Test
+    @DisplayName("Simulator rethrows the failure of a concurrent fetch unwrapped")
+    void simulatePortfolio_rethrowsFetchFailure() {
+        ReflectionTestUtils.setField(simulationService, "useMarketPrice", false);
+
+        var request = new SimulatePortfolioRequest(LocalDate.now(),
+                List.of(new SimulatePortfolioAssetInput("BTC", BigDecimal.ONE, new BigDecimal("100"))));
+
+        when(coinCapService.getCurrentPriceOrLastKnown("BTC"))
+                .thenThrow(CoinCapApiException.fetchPriceFailed("BTC", new RuntimeException("down")));
+
+        assertThatThrownBy(() -> simulationService.simulatePortfolio(request))
+                .isInstanceOf(CoinCapApiException.class);
+    }
 }
@@ -0,0 +1,46 @@
+package com.spicep.cryptowallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpotPriceCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SpotPriceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SpotPriceCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("A price within the staleness bound is a hit, an unknown symbol is a miss")
+    void getFresh_hitAndMiss() {
+        cache.put("btc", new BigDecimal("100"));
+
+        assertThat(cache.getFresh("BTC")).contains(new BigDecimal("100"));
+        assertThat(cache.getFresh("ETH")).isEmpty();
+        assertThat(meterRegistry.counter("spot.price.cache", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("spot.price.cache", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A price older than the staleness bound is not served")
+    void getFresh_expired() {
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ZERO);
+        cache.put("BTC", new BigDecimal("100"));
+
+        assertThat(cache.getFresh("BTC")).isEmpty();
+    }
+}
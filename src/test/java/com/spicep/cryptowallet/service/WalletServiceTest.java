@@ -10,7 +10,6 @@ import com.spicep.cryptowallet.exception.WalletAlreadyExistsException;
 import com.spicep.cryptowallet.exception.WalletNotFoundException;
 import com.spicep.cryptowallet.mapper.WalletMapper;
 import com.spicep.cryptowallet.repository.AssetRepository;
-import com.spicep.cryptowallet.repository.PriceHistoryRepository;
 import com.spicep.cryptowallet.repository.UserRepository;
 import com.spicep.cryptowallet.repository.WalletRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +19,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.Collections;
@@ -29,6 +31,7 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -42,7 +45,7 @@ class WalletServiceTest {
     @Mock
     private AssetRepository assetRepository;
     @Mock
-    private PriceHistoryRepository priceHistoryRepository;
+    private PriceHistoryWriter priceHistoryWriter;
     @Mock
     private WalletMapper walletMapper;
     @Mock
@@ -52,7 +55,7 @@ class WalletServiceTest {
 
     @BeforeEach
     void setUp() {
-        walletService = new WalletService(userRepository, walletRepository, assetRepository, priceHistoryRepository,
+        walletService = new WalletService(userRepository, walletRepository, assetRepository, priceHistoryWriter,
                 walletMapper, coinCapService);
     }
 
@@ -71,9 +74,11 @@ class WalletServiceTest {
         var walletId = UUID.randomUUID();
         var wallet = Wallet.builder().id(walletId).user(User.builder().id(UUID.randomUUID()).email("nuno@example.com").build()).build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(assetRepository.findByWalletIdAndSymbol(walletId, "BTC")).thenReturn(Collections.emptyList());
-        when(coinCapService.validateAssetPrice("btc", new BigDecimal("100.00"))).thenReturn(new BigDecimal("110.00"));
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        // CoinCap prices have more decimals than the current_price column
+        when(coinCapService.validateAssetPrice("btc", new BigDecimal("100.00"))).thenReturn(new BigDecimal("109.9962"));
+        // The stored total, which a concurrent price tick of another asset moved as well
+        when(walletRepository.refreshTotalValue(walletId)).thenReturn(new BigDecimal("170.00"));
 
         var captor = ArgumentCaptor.forClass(Wallet.class);
         when(walletRepository.save(any(Wallet.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -87,6 +92,31 @@ class WalletServiceTest {
         var asset = savedWallet.getAssets().getFirst();
         assertThat(asset.getAcquisitionPrice()).isEqualByComparingTo("100.00");
         assertThat(asset.getCurrentPrice()).isEqualByComparingTo("110.00");
+        assertThat(asset.getValue()).isEqualByComparingTo("165.00");
+        assertThat(savedWallet.getTotalValue()).isEqualByComparingTo("170.00");
+    }
+
+    @Test
+    @DisplayName("When adding a new asset the price is recorded in history only after the transaction commits")
+    void addAsset_recordsPriceAfterCommit() {
+        var walletId = UUID.randomUUID();
+        var wallet = Wallet.builder().id(walletId).user(User.builder().email("nuno@example.com").build()).build();
+
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        when(coinCapService.validateAssetPrice("btc", new BigDecimal("100.00"))).thenReturn(new BigDecimal("110.00"));
+        when(walletRepository.refreshTotalValue(walletId)).thenReturn(new BigDecimal("165.00"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            walletService.addAsset(walletId, new AddAssetRequest("btc", new BigDecimal("1.5"), new BigDecimal("100.00")));
+            verifyNoInteractions(priceHistoryWriter);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(priceHistoryWriter).append(argThat(row -> row.getSymbol().equals("BTC")));
     }
 
     @Test
@@ -106,19 +136,36 @@ class WalletServiceTest {
                 .wallet(wallet)
                 .build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(assetRepository.findByWalletIdAndSymbol(walletId, "BTC")).thenReturn(Collections.singletonList(existingAsset));
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        wallet.getAssets().add(existingAsset);
         when(coinCapService.validateAssetPrice("btc", new BigDecimal("120.00"))).thenReturn(new BigDecimal("125.00"));
 
         assertThatThrownBy(() -> walletService.addAsset(walletId, new AddAssetRequest("btc", new BigDecimal("0.5"), new BigDecimal("120.00"))))
                 .isInstanceOf(com.spicep.cryptowallet.exception.AssetAlreadyExistsException.class);
+        verifyNoInteractions(priceHistoryWriter);
+    }
+
+    @Test
+    @DisplayName("When adding a new asset it should reject a duplicate symbol added concurrently")
+    void addAsset_throwsWhenConcurrentDuplicate() {
+        var walletId = UUID.randomUUID();
+        var wallet = Wallet.builder().id(walletId).user(User.builder().email("nuno@example.com").build()).build();
+
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        when(coinCapService.validateAssetPrice("btc", new BigDecimal("100.00"))).thenReturn(new BigDecimal("110.00"));
+        doThrow(new DataIntegrityViolationException("uq_assets_wallet_symbol"))
+                .when(walletRepository).refreshTotalValue(walletId);
+
+        assertThatThrownBy(() -> walletService.addAsset(walletId, new AddAssetRequest("btc", new BigDecimal("1.5"), new BigDecimal("100.00"))))
+                .isInstanceOf(com.spicep.cryptowallet.exception.AssetAlreadyExistsException.class);
+        verifyNoInteractions(priceHistoryWriter);
     }
 
     @Test
     @DisplayName("When getting a wallet it should throw when not found")
     void getWallet_throwsWhenNotFound() {
         var walletId = UUID.randomUUID();
-        when(walletRepository.findById(walletId)).thenReturn(Optional.empty());
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> walletService.getWallet(walletId))
                 .isInstanceOf(WalletNotFoundException.class);
@@ -131,7 +178,7 @@ class WalletServiceTest {
         var wallet = Wallet.builder().id(walletId).user(User.builder().email("nuno@example.com").build()).build();
         var expected = new WalletResponse(walletId.toString(), "nuno@example.com", BigDecimal.ZERO, Collections.emptyList());
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
         when(walletMapper.toResponse(eq(wallet))).thenReturn(expected);
 
         var result = walletService.getWallet(walletId);
@@ -154,16 +201,20 @@ class WalletServiceTest {
                 .currentPrice(new BigDecimal("90.00"))
                 .build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(assetRepository.findById(assetId)).thenReturn(Optional.of(asset));
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        wallet.addAsset(asset);
         when(coinCapService.getCurrentPrice("BTC")).thenReturn(new BigDecimal("120.00"));
+        when(walletRepository.refreshTotalValue(walletId)).thenReturn(new BigDecimal("300.00"));
         when(walletMapper.toResponse(wallet)).thenReturn(new WalletResponse(walletId.toString(), "nuno@example.com", BigDecimal.ZERO, Collections.emptyList()));
 
         walletService.updateAsset(walletId, assetId, new com.spicep.cryptowallet.dto.request.UpdateAssetRequest(new BigDecimal("2.5")));
 
         verify(assetRepository).save(asset);
+        verify(walletRepository).refreshTotalValue(walletId);
         assertThat(asset.getQuantity()).isEqualByComparingTo("2.5");
         assertThat(asset.getCurrentPrice()).isEqualByComparingTo("120.00");
+        assertThat(asset.getValue()).isEqualByComparingTo("300.00");
+        assertThat(wallet.getTotalValue()).isEqualByComparingTo("300.00");
     }
 
     @Test
@@ -182,8 +233,9 @@ class WalletServiceTest {
                 .currentPrice(new BigDecimal("90.00"))
                 .build();
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(assetRepository.findById(assetId)).thenReturn(Optional.of(asset));
+        when(walletRepository.findWithUserAndAssetsById(walletId)).thenReturn(Optional.of(wallet));
+        otherWallet.getAssets().add(asset);
+        when(assetRepository.existsById(assetId)).thenReturn(true);
 
         assertThatThrownBy(() -> walletService.updateAsset(walletId, assetId, new com.spicep.cryptowallet.dto.request.UpdateAssetRequest(new BigDecimal("2.5"))))
                 .isInstanceOf(AssetNotFoundException.class);